@@ -0,0 +1,207 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the {@link TurtleParser} over the turtle files in dat/.
+ * For every file it measures parsing from end to end, every processing phase of the parser separately, and both output methods.
+ * Each benchmark is warmed up before it is measured, and the median time of the measured iterations is reported together with
+ * the throughput, the bytes allocated per iteration and the time spent in garbage collection.
+ * The results can be saved and compared against the saved results of an earlier run.
+ * Compile and run it from the root of the repository with:
+ * javac -d bin/ src/*.java bench/*.java && java -Dfile.encoding=UTF-8 -cp bin/ Benchmark [options] [files]
+ * The options are:
+ * --warmup n (warmup iterations, default 10), --iterations n (measured iterations, default 20),
+ * --save file (writes the results to a file), --baseline file (compares the results with a file written by --save).
+ */
+public class Benchmark {
+
+  private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private int warmup = 10;
+  private int iterations = 20;
+
+  // the results of the run, keyed by file and benchmark name.
+  private final Map<String, Result> results = new LinkedHashMap<>();
+
+  /**
+   * The measurements of a single benchmark.
+   */
+  private record Result(long nanos, long bytes, long gcNanos, long triples, long dataBytes) {
+
+    double triplesPerSecond() {
+      return triples * 1e9 / nanos;
+    }
+
+    double megabytesPerSecond() {
+      return dataBytes * 1e9 / nanos / (1 << 20);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Benchmark benchmark = new Benchmark();
+    List<Path> files = new ArrayList<>();
+    Path save = null;
+    Path baseline = null;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--warmup" -> benchmark.warmup = Integer.parseInt(args[++i]);
+        case "--iterations" -> benchmark.iterations = Integer.parseInt(args[++i]);
+        case "--save" -> save = Paths.get(args[++i]);
+        case "--baseline" -> baseline = Paths.get(args[++i]);
+        default -> files.add(Paths.get(args[i]));
+      }
+    }
+    if (files.isEmpty()) {
+      try (Stream<Path> dat = Files.list(Paths.get("dat"))) {
+        dat.filter(file -> file.toString().endsWith(".ttl")).sorted().forEach(files::add);
+      }
+    }
+
+    Map<String, Long> previous = baseline != null ? load(baseline) : Map.of();
+    System.out.printf("%-46s %10s %12s %9s %12s %9s %8s%n", "benchmark", "ms/op", "triples/s", "MB/s", "alloc/op", "gc ms/op", "change");
+    for (Path file : files) benchmark.run(file, previous);
+    if (save != null) benchmark.save(save);
+  }
+
+  /**
+   * Runs every benchmark on a file and prints the results.
+   * @param file (Path) the turtle file.
+   * @param baseline (Map<String, Long>) the nanoseconds per iteration of an earlier run, keyed by file and benchmark name.
+   */
+  private void run(Path file, Map<String, Long> baseline) throws IOException {
+    String name = file.getFileName().toString();
+    long size = Files.size(file);
+    TurtleParser parsed = new TurtleParser(file.toString());
+    int triples = parsed.getTripleStore().size();
+
+    report(name, "parse", measure(() -> new TurtleParser(file.toString())), triples, size, baseline);
+
+    // the phases are measured together in one run, so that each phase sees the same state as in a normal parse.
+    List<PhaseTimings> runs = new ArrayList<>();
+    Result total = measure(() -> {
+      PhaseTimings timings = new PhaseTimings();
+      TurtleParser parser = new TurtleParser();
+      parser.setParseStats(timings);
+      try {
+        parser.process(TurtleInput.open(file), new TripleStore());
+      } catch (IOException err) {
+        throw new UncheckedIOException(err);
+      }
+      runs.add(timings);
+    });
+    List<PhaseTimings> measured = runs.subList(warmup, runs.size());
+    for (ParseStats.Phase phase : ParseStats.Phase.values()) {
+      long[] nanos = measured.stream().mapToLong(timings -> timings.getNanos(phase)).sorted().toArray();
+      long bytes = measured.stream().mapToLong(timings -> timings.getBytes(phase)).sum() / measured.size();
+      report(name, "phase " + phase.name().toLowerCase(), new Result(nanos[nanos.length / 2], bytes, 0, 0, 0), triples, size, baseline);
+    }
+    report(name, "phase total", total, triples, size, baseline);
+
+    Counter turtle = new Counter();
+    parsed.printData(new NTriplesWriter(turtle, parsed.getBaseURL()));
+    report(name, "printDataTurtle", measure(() -> parsed.printData(new NTriplesWriter(OutputStream.nullOutputStream(), parsed.getBaseURL()))),
+        triples, turtle.count, baseline);
+
+    Counter csv = new Counter();
+    parsed.printData(new CsvWriter(csv, "\t"));
+    report(name, "printDataCSV", measure(() -> parsed.printData(new CsvWriter(OutputStream.nullOutputStream(), "\t"))),
+        triples, csv.count, baseline);
+  }
+
+  /**
+   * Runs a benchmark after warming it up.
+   * @param benchmark (Runnable) a single iteration of the benchmark.
+   * @return (Result) the median time, and the average allocations and garbage collection time, of an iteration.
+   */
+  private Result measure(Runnable benchmark) {
+    for (int i = 0; i < warmup; i++) benchmark.run();
+    long[] nanos = new long[iterations];
+    long bytes = THREADS.getCurrentThreadAllocatedBytes();
+    long gc = gcMillis();
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      benchmark.run();
+      nanos[i] = System.nanoTime() - start;
+    }
+    bytes = THREADS.getCurrentThreadAllocatedBytes() - bytes;
+    gc = gcMillis() - gc;
+    Arrays.sort(nanos);
+    return new Result(nanos[iterations / 2], bytes / iterations, gc * 1_000_000 / iterations, 0, 0);
+  }
+
+  private void report(String file, String benchmark, Result measured, long triples, long dataBytes, Map<String, Long> baseline) {
+    Result result = new Result(measured.nanos(), measured.bytes(), measured.gcNanos(), triples, dataBytes);
+    String key = file + " " + benchmark;
+    results.put(key, result);
+    Long previous = baseline.get(key);
+    String change = previous == null || previous == 0 ? "" : String.format("%+.1f%%", (result.nanos() - previous) * 100.0 / previous);
+    System.out.printf("%-46s %10.3f %12.0f %9.1f %12s %9.2f %8s%n", key, result.nanos() / 1e6, result.triplesPerSecond(),
+        result.megabytesPerSecond(), formatBytes(result.bytes()), result.gcNanos() / 1e6, change);
+  }
+
+  /**
+   * Writes the results as tab-separated lines of file and benchmark name, nanoseconds per iteration and bytes per iteration.
+   */
+  private void save(Path path) throws IOException {
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+      for (Map.Entry<String, Result> result : results.entrySet())
+        out.println(result.getKey() + "\t" + result.getValue().nanos() + "\t" + result.getValue().bytes());
+    }
+  }
+
+  private static Map<String, Long> load(Path path) throws IOException {
+    Map<String, Long> nanos = new LinkedHashMap<>();
+    try (BufferedReader in = Files.newBufferedReader(path)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if (fields.length >= 2) nanos.put(fields[0], Long.parseLong(fields[1]));
+      }
+    }
+    return nanos;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) millis += Math.max(0, collector.getCollectionTime());
+    return millis;
+  }
+
+  private static String formatBytes(long bytes) {
+    if (bytes < 1 << 10) return bytes + " B";
+    if (bytes < 1 << 20) return String.format("%.1f KB", bytes / 1024.0);
+    return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+  }
+
+  /**
+   * Counts the bytes written to it, to find the size of the output.
+   */
+  private static class Counter extends OutputStream {
+
+    private long count = 0;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
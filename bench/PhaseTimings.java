@@ -0,0 +1,38 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * {@link ParseStats} that also measure the bytes allocated in each processing phase, for benchmarking.
+ * The allocations are only measured on the thread that the parser runs on.
+ */
+class PhaseTimings extends ParseStats {
+
+  private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final long[] bytes = new long[Phase.values().length];
+
+  private long lastBytes;
+
+  @Override
+  void start() {
+    lastBytes = THREADS.getCurrentThreadAllocatedBytes();
+    super.start();
+  }
+
+  @Override
+  void lap(Phase phase) {
+    super.lap(phase);
+    long allocated = THREADS.getCurrentThreadAllocatedBytes();
+    bytes[phase.ordinal()] += allocated - lastBytes;
+    lastBytes = THREADS.getCurrentThreadAllocatedBytes();
+    super.start();
+  }
+
+  /**
+   * Returns the total number of bytes allocated in a phase.
+   * @param phase (Phase) the phase.
+   * @return (long) the number of bytes.
+   */
+  long getBytes(Phase phase) {
+    return bytes[phase.ordinal()];
+  }
+}
@@ -0,0 +1,202 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Checks that parsing scales linearly with the size of the data, so that a change cannot bring back a path whose cost grows
+ * faster, such as repeated string replacements over the whole data.
+ * It generates data of 1, 2, 4 and 8 times a base size with {@link TurtleGenerator}, parses every size into a
+ * {@link TurtleParser}, and measures the median time of a parse, the peak live heap during a parse and the heap that the
+ * parsed data keeps in use. The growth of each is fitted to a power law, size^k, with a least squares fit of their
+ * logarithms; the check fails with exit code 1 if k is above the limit for any of them.
+ * The peak live heap is the largest heap usage left after any garbage collection during the parse, as reported by the
+ * notifications of the collectors, so that it follows the data that is reachable rather than the size of the young
+ * generation, which fills up and saturates whatever the data. As a small parse may not trigger any collection, full
+ * collections are also requested {@value #SAMPLES} times during the parse, spread over its median time, so that every size
+ * is sampled alike. The retained heap is measured after a full garbage collection that keeps the parser. Both are measured
+ * on a separate parse after a full garbage collection, relative to the heap before it.
+ * Compile and run it from the root of the repository with:
+ * javac -d bin/ src/*.java bench/*.java && java -cp bin/ ScalingCheck [options]
+ * The options are:
+ * --size s (base size with a suffix k, m or g, default 4m), --seed n (seed of the data, default 42),
+ * --iterations n (measured parses per size, default 3), --max-exponent k (the limit of the fitted exponent, default 1.2).
+ */
+public class ScalingCheck {
+
+  private static final int[] FACTORS = { 1, 2, 4, 8 };
+  private static final int WARMUP = 10;
+  // the number of full garbage collections requested during the parse that measures the heap.
+  private static final int SAMPLES = 16;
+
+  private static final List<MemoryPoolMXBean> HEAP = ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+  private static final Set<String> HEAP_NAMES = HEAP.stream().map(MemoryPoolMXBean::getName).collect(Collectors.toSet());
+
+  // the largest heap usage after a garbage collection since it was last reset, and the number of collections so far.
+  private static final AtomicLong PEAK_LIVE = new AtomicLong();
+  private static final AtomicLong COLLECTIONS = new AtomicLong();
+
+  static {
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet())
+          if (HEAP_NAMES.contains(pool.getKey())) used += pool.getValue().getUsed();
+        PEAK_LIVE.accumulateAndGet(used, Math::max);
+        COLLECTIONS.incrementAndGet();
+      }, null, null);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    long size = 4 << 20;
+    long seed = 42;
+    int iterations = 3;
+    double maxExponent = 1.2;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--size" -> size = TurtleGenerator.parseSize(args[++i]);
+        case "--seed" -> seed = Long.parseLong(args[++i]);
+        case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+        case "--max-exponent" -> maxExponent = Double.parseDouble(args[++i]);
+        default -> throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+      }
+    }
+
+    double[] sizes = new double[FACTORS.length];
+    double[] nanos = new double[FACTORS.length];
+    double[] peaks = new double[FACTORS.length];
+    double[] retained = new double[FACTORS.length];
+    System.out.printf("%6s %10s %10s %10s %9s %12s %12s%n", "factor", "MB", "triples", "ms", "MB/s", "peak live MB", "retained MB");
+    for (int i = 0; i < FACTORS.length; i++) {
+      int triples = 0;
+      Path file = Files.createTempFile("scaling-" + FACTORS[i] + "x-", ".ttl");
+      try {
+        sizes[i] = TurtleGenerator.generate(seed, size * FACTORS[i], file);
+        // the smallest size is also the warmup of the parser, which must be compiled before the first size is measured.
+        int warmup = i == 0 ? WARMUP : 1;
+        for (int j = 0; j < warmup; j++) triples = new TurtleParser(file.toString()).getTripleStore().size();
+        long[] measured = new long[iterations];
+        for (int j = 0; j < iterations; j++) {
+          long start = System.nanoTime();
+          new TurtleParser(file.toString());
+          measured[j] = System.nanoTime() - start;
+        }
+        Arrays.sort(measured);
+        nanos[i] = measured[iterations / 2];
+        long[] heap = measureHeap(file, (long) nanos[i] / SAMPLES);
+        peaks[i] = heap[0];
+        retained[i] = heap[1];
+      } finally {
+        Files.deleteIfExists(file);
+      }
+      System.out.printf("%5dx %10.1f %10d %10.1f %9.1f %12.1f %12.1f%n", FACTORS[i], sizes[i] / (1 << 20), triples, nanos[i] / 1e6,
+          sizes[i] * 1e9 / nanos[i] / (1 << 20), peaks[i] / (1 << 20), retained[i] / (1 << 20));
+    }
+
+    boolean timeOk = check("time", exponent(sizes, nanos), maxExponent);
+    boolean peakOk = check("peak live heap", exponent(sizes, peaks), maxExponent);
+    boolean retainedOk = check("retained heap", exponent(sizes, retained), maxExponent);
+    if (!timeOk || !peakOk || !retainedOk) System.exit(1);
+  }
+
+  /**
+   * Parses a file after a full garbage collection and measures the heap usage of the parse.
+   * @param file (Path) the turtle file.
+   * @param interval (long) the time between the full garbage collections requested during the parse, in nanoseconds.
+   * @return (long[]) the growth of the largest heap usage after a garbage collection during the parse, including the full
+   * garbage collection after it that keeps the parser, and the growth of the used heap after that collection, in bytes.
+   */
+  private static long[] measureHeap(Path file, long interval) {
+    fullCollection();
+    long before = usedHeap();
+    PEAK_LIVE.set(0);
+    Thread sampler = new Thread(() -> {
+      try {
+        while (true) {
+          Thread.sleep(interval / 1_000_000, (int) (interval % 1_000_000));
+          System.gc();
+        }
+      } catch (InterruptedException err) {
+        // the parse has ended.
+      }
+    });
+    sampler.setDaemon(true);
+    sampler.start();
+    TurtleParser parser = new TurtleParser(file.toString());
+    sampler.interrupt();
+    try {
+      sampler.join();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+    }
+    fullCollection();
+    long retained = usedHeap() - before;
+    long peak = PEAK_LIVE.get() - before;
+    // the parsed data is what is measured, so it must not be collected before the heap is read.
+    if (parser.getTripleStore().size() < 0) throw new IllegalStateException();
+    return new long[] { Math.max(1, peak), Math.max(1, retained) };
+  }
+
+  /**
+   * Runs a full garbage collection and waits until its notification has been delivered, which happens on another thread.
+   */
+  private static void fullCollection() {
+    long collections = COLLECTIONS.get();
+    System.gc();
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (COLLECTIONS.get() == collections && System.nanoTime() < deadline) Thread.onSpinWait();
+  }
+
+  private static long usedHeap() {
+    long used = 0;
+    for (MemoryPoolMXBean pool : HEAP) used += pool.getUsage().getUsed();
+    return used;
+  }
+
+  /**
+   * Fits the growth of the values to a power of the sizes.
+   * @param sizes (double[]) the sizes.
+   * @param values (double[]) the value measured at every size.
+   * @return (double) the exponent k of the fit values = c * sizes^k.
+   */
+  static double exponent(double[] sizes, double[] values) {
+    int n = sizes.length;
+    double meanX = 0;
+    double meanY = 0;
+    for (int i = 0; i < n; i++) {
+      meanX += Math.log(sizes[i]) / n;
+      meanY += Math.log(values[i]) / n;
+    }
+    double covariance = 0;
+    double variance = 0;
+    for (int i = 0; i < n; i++) {
+      double x = Math.log(sizes[i]) - meanX;
+      covariance += x * (Math.log(values[i]) - meanY);
+      variance += x * x;
+    }
+    return covariance / variance;
+  }
+
+  private static boolean check(String measure, double exponent, double maxExponent) {
+    boolean ok = exponent <= maxExponent;
+    System.out.printf("%s grows as size^%.2f (limit %.2f): %s%n", measure, exponent, maxExponent, ok ? "ok" : "FAILED");
+    return ok;
+  }
+}
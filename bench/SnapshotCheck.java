@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that a {@link GraphSnapshot} reloads exactly the triples of the parse it was saved from.
+ * Every file is parsed, saved in a snapshot, reopened, and its triples are compared with those of the parser one by one.
+ * Besides the given files, it always checks a small graph that declares several prefixes for the same namespace, since the
+ * prefix table of a snapshot has an entry for every prefix while its terms refer to a namespace. The check fails with exit
+ * code 1 if any triple differs.
+ * Compile and run it from the root of the repository with:
+ * javac -d bin/ src/*.java bench/*.java && java -cp bin/ SnapshotCheck [file ...]
+ */
+public class SnapshotCheck {
+
+  // two prefixes of the same namespace declared before a third one, whose terms must not resolve to the first namespace.
+  private static final String ALIASED_PREFIXES =
+      "@prefix a: <http://example.org/one#> .\n"
+      + "@prefix b: <http://example.org/one#> .\n"
+      + "@prefix c: <http://example.org/two#> .\n"
+      + "c:x c:p c:y .\n"
+      + "a:x b:p \"one\" .\n"
+      + "b:y a:p [ c:q ( c:z a:z ) ] .\n";
+
+  public static void main(String[] args) throws IOException {
+    List<Path> files = new ArrayList<>();
+    Path aliased = Files.createTempFile("snapshot-aliased-", ".ttl");
+    Files.writeString(aliased, ALIASED_PREFIXES);
+    files.add(aliased);
+    for (String arg : args) files.add(Path.of(arg));
+
+    int failures = 0;
+    try {
+      for (Path file : files) {
+        String error = check(file);
+        System.out.println((error == null ? "OK    " : "FAILED ") + file + (error == null ? "" : ": " + error));
+        if (error != null) failures++;
+      }
+    } finally {
+      Files.deleteIfExists(aliased);
+    }
+    if (failures > 0) System.exit(1);
+  }
+
+  /**
+   * Saves the parse of a file in a snapshot and compares the reloaded triples with those of the parser.
+   * @param file (Path) the turtle file.
+   * @return (String) a description of the first difference, or null if the snapshot is identical.
+   * @throws IOException if the snapshot cannot be written or read.
+   */
+  private static String check(Path file) throws IOException {
+    TurtleParser parser = new TurtleParser(file.toString());
+    Path snapshotFile = Files.createTempFile("snapshot-", ".bin");
+    try {
+      parser.saveSnapshot(snapshotFile.toString());
+      GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile);
+      List<String[]> expected = parser.getData();
+      List<String[]> actual = snapshot.getData();
+      if (expected.size() != actual.size()) return expected.size() + " triples were saved but " + actual.size() + " were reloaded";
+      for (int i = 0; i < expected.size(); i++) {
+        if (!List.of(expected.get(i)).equals(List.of(actual.get(i))))
+          return "triple " + i + " " + List.of(expected.get(i)) + " was reloaded as " + List.of(actual.get(i));
+      }
+      return null;
+    } finally {
+      Files.deleteIfExists(snapshotFile);
+    }
+  }
+}
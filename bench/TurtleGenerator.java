@@ -0,0 +1,257 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic turtle data of any size, from a few kilobytes to many gigabytes, for benchmarks and scaling checks.
+ * The output only depends on the seed: the same seed gives the same data, and a larger size gives the same data followed
+ * by more subjects.
+ *
+ * The shape of the data follows the vocabularies in dat/: a handful of prefixes with skewed usage, about eight predicates
+ * per subject separated by ';' and one to two objects per predicate separated by ',', about half of the objects literals
+ * (mostly short and with a language tag, some typed, and a few long multi-line literals with escapes), references to
+ * other subjects, and blank node property lists and collections nested up to three levels deep.
+ * Compile and run it from the root of the repository with:
+ * javac -d bin/ src/*.java bench/*.java && java -cp bin/ TurtleGenerator [--seed n] [--size 100m] [file]
+ * The size is in bytes, or with a suffix k, m or g; the data is written to standard output if no file is given.
+ */
+public class TurtleGenerator {
+
+  private static final String[] PREFIXES = {
+    "rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>",
+    "rdfs: <http://www.w3.org/2000/01/rdf-schema#>",
+    "owl: <http://www.w3.org/2002/07/owl#>",
+    "xsd: <http://www.w3.org/2001/XMLSchema#>",
+    "skos: <http://www.w3.org/2004/02/skos/core#>",
+    "dcterms: <http://purl.org/dc/terms/>",
+    "prov: <http://www.w3.org/ns/prov#>",
+    ": <http://example.org/vocabulary/>",
+  };
+
+  // the predicates, most used first: the first few take most of the statements, as in real vocabularies.
+  private static final String[] PREDICATES = {
+    "skos:prefLabel", "skos:inScheme", "skos:broader", "rdfs:label", "skos:definition", "skos:altLabel", "rdfs:comment",
+    "dcterms:modified", "skos:narrower", "skos:notation", "rdfs:subClassOf", "dcterms:source", "prov:wasDerivedFrom",
+    "owl:sameAs", "skos:related", "dcterms:created", ":weight", "skos:note", "rdfs:seeAlso", "prov:qualifiedAssociation",
+  };
+
+  private static final String[] CLASSES = { "skos:Concept", "owl:Class", "rdf:Property", "prov:Entity", ":Term" };
+
+  private static final String[] LANGUAGES = { "en", "nl", "de", "fr", "es" };
+
+  private static final String[] SYLLABLES = {
+    "ka", "lo", "mi", "ne", "ru", "sa", "te", "vo", "an", "el", "is", "or", "um", "be", "di", "fa", "go", "hu", "ji", "pe",
+  };
+
+  private static final int MAX_DEPTH = 3;
+
+  private final SplittableRandom random;
+  private final StringBuilder text = new StringBuilder(1 << 16);
+  private int subjects = 0;
+
+  private TurtleGenerator(long seed) {
+    this.random = new SplittableRandom(seed);
+  }
+
+  public static void main(String[] args) throws IOException {
+    long seed = 42;
+    long size = 1 << 20;
+    Path file = null;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--seed" -> seed = Long.parseLong(args[++i]);
+        case "--size" -> size = parseSize(args[++i]);
+        default -> file = Paths.get(args[i]);
+      }
+    }
+    if (file == null) {
+      generate(seed, size, System.out);
+      System.out.flush();
+    } else {
+      generate(seed, size, file);
+    }
+  }
+
+  /**
+   * Writes generated data to a file.
+   * @param seed (long) the seed of the data.
+   * @param size (long) the size to reach; the last statement makes the file a little larger.
+   * @param file (Path) the file, which is replaced if it exists.
+   * @return (long) the size of the file.
+   * @throws IOException if the file cannot be written.
+   */
+  public static long generate(long seed, long size, Path file) throws IOException {
+    try (OutputStream out = Files.newOutputStream(file)) {
+      return generate(seed, size, out);
+    }
+  }
+
+  /**
+   * Writes generated data to a stream, without closing it.
+   * @param seed (long) the seed of the data.
+   * @param size (long) the number of bytes to reach; the last statement makes the output a little larger.
+   * @param out (OutputStream) the destination of the data.
+   * @return (long) the number of bytes written.
+   * @throws IOException if the data cannot be written.
+   */
+  public static long generate(long seed, long size, OutputStream out) throws IOException {
+    TurtleGenerator generator = new TurtleGenerator(seed);
+    BufferedOutputStream buffered = new BufferedOutputStream(out, 1 << 20);
+    long written = 0;
+    for (String prefix : PREFIXES) generator.text.append("@prefix ").append(prefix).append(" .\n");
+    generator.text.append('\n');
+    while (true) {
+      byte[] bytes = generator.text.toString().getBytes(StandardCharsets.UTF_8);
+      buffered.write(bytes);
+      written += bytes.length;
+      generator.text.setLength(0);
+      if (written >= size) break;
+      generator.statement();
+    }
+    buffered.flush();
+    return written;
+  }
+
+  /**
+   * Parses a size such as 4096, 512k, 100m or 10g.
+   * @param size (String) the size.
+   * @return (long) the number of bytes.
+   */
+  static long parseSize(String size) {
+    String lower = size.toLowerCase(Locale.ROOT);
+    int shift = lower.endsWith("k") ? 10 : lower.endsWith("m") ? 20 : lower.endsWith("g") ? 30 : 0;
+    if (shift > 0) lower = lower.substring(0, lower.length() - 1);
+    return Long.parseLong(lower) << shift;
+  }
+
+  /**
+   * Appends a statement about the next subject.
+   */
+  private void statement() {
+    subject(subjects++);
+    text.append(" a ").append(CLASSES[skewed(CLASSES.length)]);
+    int predicates = geometric(1.0 / 7);
+    // a predicate is rarely repeated within a statement, its objects are listed with ',' instead.
+    int used = 0;
+    for (int i = 0; i < predicates; i++) {
+      int predicate = skewed(PREDICATES.length);
+      for (int tries = 0; (used & (1 << predicate)) != 0 && tries < 4; tries++) predicate = skewed(PREDICATES.length);
+      used |= 1 << predicate;
+      text.append(" ;\n  ");
+      predicateObjects(predicate, 1);
+    }
+    text.append(" .\n\n");
+  }
+
+  /**
+   * Appends a predicate and its objects.
+   * @param predicate (int) index of the predicate.
+   * @param depth (int) the nesting depth of the predicate, 1 at the top level.
+   */
+  private void predicateObjects(int predicate, int depth) {
+    text.append(PREDICATES[predicate]).append(' ');
+    int objects = geometric(0.7);
+    for (int i = 0; i < objects; i++) {
+      if (i > 0) text.append(" , ");
+      object(depth);
+    }
+  }
+
+  private void object(int depth) {
+    int kind = random.nextInt(100);
+    if (kind < 45) literal();
+    else if (kind < 83 || depth > MAX_DEPTH) reference();
+    else if (kind < 88) text.append(random.nextInt(1000));
+    else if (kind < 95) blankNode(depth);
+    else collection(depth);
+  }
+
+  private void literal() {
+    int kind = random.nextInt(100);
+    if (kind < 3) {
+      // a long description over several lines, with quotes that do not end it.
+      text.append("\"\"\"");
+      int lines = 2 + random.nextInt(6);
+      for (int i = 0; i < lines; i++) {
+        if (i > 0) text.append('\n');
+        words(10 + random.nextInt(30));
+      }
+      text.append(" \"quoted\" \\t end\"\"\"@").append(LANGUAGES[skewed(LANGUAGES.length)]);
+      return;
+    }
+    text.append('"');
+    // short labels are most common, with a tail of longer definitions.
+    words(kind < 70 ? 1 + random.nextInt(3) : 5 + random.nextInt(25));
+    if (random.nextInt(50) == 0) text.append(" \\\"escaped\\\"\\n");
+    text.append('"');
+    if (kind < 80) text.append('@').append(LANGUAGES[skewed(LANGUAGES.length)]);
+    else if (kind < 90) text.append("^^xsd:string");
+  }
+
+  private void reference() {
+    // mostly concepts close to the subject, as in broader and narrower links, sometimes far away or not yet defined.
+    int target = random.nextInt(4) == 0 ? random.nextInt(subjects + 100) : Math.max(0, subjects - 1 - random.nextInt(50));
+    subject(target);
+  }
+
+  private void blankNode(int depth) {
+    text.append("[ ");
+    int predicates = 1 + random.nextInt(3);
+    for (int i = 0; i < predicates; i++) {
+      if (i > 0) text.append(" ; ");
+      predicateObjects(skewed(PREDICATES.length), depth + 1);
+    }
+    text.append(" ]");
+  }
+
+  private void collection(int depth) {
+    text.append("( ");
+    int items = 1 + random.nextInt(5);
+    for (int i = 0; i < items; i++) {
+      object(depth + 1);
+      text.append(' ');
+    }
+    text.append(')');
+  }
+
+  private void subject(int id) {
+    // one in ten subjects is written as a full IRI instead of a prefixed name.
+    if (id % 10 == 3) text.append("<http://example.org/vocabulary/c").append(id).append('>');
+    else text.append(":c").append(id);
+  }
+
+  private void words(int count) {
+    for (int i = 0; i < count; i++) {
+      if (i > 0) text.append(' ');
+      int syllables = 1 + random.nextInt(4);
+      for (int j = 0; j < syllables; j++) text.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+    }
+  }
+
+  /**
+   * Picks an index with a skewed distribution, where index 0 is the most likely and every next index is less likely.
+   * @param n (int) the number of indexes.
+   * @return (int) an index between 0 and n - 1.
+   */
+  private int skewed(int n) {
+    double u = random.nextDouble();
+    return (int) (n * u * u);
+  }
+
+  /**
+   * Draws a count of at least 1 from a geometric distribution.
+   * @param p (double) the chance to stop after each count, so that the mean is 1 / p.
+   * @return (int) the count.
+   */
+  private int geometric(double p) {
+    int count = 1;
+    while (random.nextDouble() >= p && count < 100) count++;
+    return count;
+  }
+}
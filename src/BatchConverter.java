@@ -0,0 +1,266 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts many turtle files in one process, with a fixed number of files being converted at the same time.
+ * Every input file is written to a file of the same name under the output directory, in the chosen format.
+ *
+ * The memory of the files in flight is limited by a budget: before a file is parsed, an estimate of the memory its data
+ * will take up is reserved from the budget, and it is returned once the output has been written. A file that is larger
+ * than the whole budget waits until it can be converted on its own.
+ */
+public class BatchConverter {
+
+  /**
+   * The output formats.
+   */
+  public enum Format {
+    NTRIPLES(".nt"),   // the output of printDataTurtle
+    TURTLE(".ttl"),    // compact turtle with the declared prefixes
+    CSV(".csv");       // comma separated with quoting
+
+    private final String extension;
+
+    Format(String extension) {
+      this.extension = extension;
+    }
+  }
+
+  // the parsed data of a file takes up about as much memory as the file, plus a fixed amount for the parser.
+  private static final long BYTES_PER_INPUT_BYTE = 2;
+  private static final long BYTES_PER_FILE = 1 << 20;
+
+  // the budget is counted in units of 1 KB, so that it fits the permits of a semaphore.
+  private static final int UNIT = 1 << 10;
+
+  private final Path outputDirectory;
+  private final Format format;
+  private final int threads;
+  private final long memoryBudget;
+  private final PrintStream progress;
+
+  /**
+   * Creates a batch converter.
+   * @param outputDirectory (Path) the directory the converted files are written to, which is created if needed.
+   * @param format (Format) the format of the converted files.
+   * @param threads (int) the number of files to convert at the same time.
+   * @param memoryBudget (long) the number of bytes that the files in flight may take up together.
+   * @param progress (PrintStream) receives a line for every converted file and a summary at the end.
+   */
+  public BatchConverter(Path outputDirectory, Format format, int threads, long memoryBudget, PrintStream progress) {
+    if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1.");
+    if (memoryBudget < UNIT) throw new IllegalArgumentException("The memory budget must be at least 1 KB.");
+    this.outputDirectory = outputDirectory;
+    this.format = format;
+    this.threads = threads;
+    this.memoryBudget = memoryBudget;
+    this.progress = progress;
+  }
+
+  /**
+   * Returns the directory that the paths of the output files are made relative to.
+   * @param pattern (String) a directory or a glob, see {@link #findFiles(String)}.
+   * @return (Path) the directory itself, or the directory of a glob before its first wildcard.
+   */
+  static Path findRoot(String pattern) {
+    if (Files.isDirectory(Paths.get(pattern))) return Paths.get(pattern);
+    String prefix = pattern.substring(0, globStart(pattern));
+    return Paths.get(prefix.substring(0, prefix.lastIndexOf('/') + 1));
+  }
+
+  /**
+   * Finds the turtle files to convert.
+   * @param pattern (String) a directory, whose .ttl files are converted including those in subdirectories, or a glob
+   * such as 'dat/*.ttl' or 'dat/**.ttl'.
+   * @return (List<Path>) the files in sorted order, which is empty if the directory does not exist.
+   * @throws IOException if the files cannot be listed.
+   */
+  public static List<Path> findFiles(String pattern) throws IOException {
+    Path root = findRoot(pattern);
+    PathMatcher matcher;
+    if (Files.isDirectory(Paths.get(pattern))) matcher = file -> file.toString().endsWith(".ttl");
+    else matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    if (!Files.isDirectory(root.toAbsolutePath())) return new ArrayList<>();
+    try (Stream<Path> files = Files.walk(root)) {
+      return files.filter(file -> Files.isRegularFile(file) && matcher.matches(file)).sorted().collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Converts the files matched by a directory or glob.
+   * @param pattern (String) a directory or a glob, see {@link #findFiles(String)}.
+   * @return (int) the number of files that could not be converted.
+   * @throws IOException if the files cannot be listed or the output directory cannot be created.
+   */
+  public int convert(String pattern) throws IOException {
+    // the output of an earlier run is not converted again, even if it matches.
+    Path exclude = outputDirectory.toAbsolutePath().normalize();
+    List<Path> files = findFiles(pattern);
+    files.removeIf(file -> file.toAbsolutePath().normalize().startsWith(exclude));
+    return convert(findRoot(pattern), files);
+  }
+
+  /**
+   * Converts a list of files.
+   * @param root (Path) the directory that the paths of the output files are made relative to.
+   * @param files (List<Path>) the turtle files.
+   * @return (int) the number of files that could not be converted.
+   * @throws IOException if the output directory cannot be created.
+   */
+  public int convert(Path root, List<Path> files) throws IOException {
+    Files.createDirectories(outputDirectory);
+    int budgetUnits = (int) Math.min(Integer.MAX_VALUE, memoryBudget / UNIT);
+    Semaphore budget = new Semaphore(budgetUnits, true);
+    AtomicInteger done = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    AtomicLong totalBytes = new AtomicLong();
+    AtomicLong totalTriples = new AtomicLong();
+
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (Path file : files) {
+        results.add(pool.submit(() -> {
+          long bytes = size(file);
+          int units = (int) Math.min(budgetUnits, (bytes * BYTES_PER_INPUT_BYTE + BYTES_PER_FILE) / UNIT);
+          budget.acquireUninterruptibly(units);
+          long fileStart = System.nanoTime();
+          try {
+            int triples = convertFile(file, output(root, file));
+            long nanos = System.nanoTime() - fileStart;
+            totalBytes.addAndGet(bytes);
+            totalTriples.addAndGet(triples);
+            report(String.format(Locale.ROOT, "[%d/%d] %s: %d triples, %d bytes in %.1f ms (%.1f MB/s)", done.incrementAndGet(),
+                files.size(), file, triples, bytes, nanos / 1e6, bytes * 1e9 / Math.max(1, nanos) / (1 << 20)));
+          } catch (RuntimeException | IOException err) {
+            failed.incrementAndGet();
+            report(String.format(Locale.ROOT, "[%d/%d] %s: failed: %s", done.incrementAndGet(), files.size(), file, err.getMessage()));
+          } finally {
+            budget.release(units);
+          }
+        }));
+      }
+      for (Future<?> result : results) result.get();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException err) {
+      throw new IllegalStateException(err.getCause());
+    } finally {
+      pool.shutdown();
+    }
+
+    long nanos = System.nanoTime() - start;
+    report(String.format(Locale.ROOT, "Converted %d of %d files: %d triples, %d bytes in %.1f s (%.1f MB/s, %.0f triples/s)",
+        files.size() - failed.get(), files.size(), totalTriples.get(), totalBytes.get(), nanos / 1e9,
+        totalBytes.get() * 1e9 / Math.max(1, nanos) / (1 << 20), totalTriples.get() * 1e9 / Math.max(1, nanos)));
+    return failed.get();
+  }
+
+  /**
+   * Parses a turtle file and writes it in the output format.
+   * @param input (Path) the turtle file.
+   * @param output (Path) the file to write, which is replaced if it exists.
+   * @return (int) the number of triples written.
+   * @throws IOException if the output cannot be written.
+   */
+  private int convertFile(Path input, Path output) throws IOException {
+    if (!Files.isReadable(input)) throw new IOException("cannot read " + input);
+    TurtleParser parser = new TurtleParser(input.toString());
+    if (output.getParent() != null) Files.createDirectories(output.getParent());
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+      parser.printData(writer(format, out, parser));
+    } catch (UncheckedIOException err) {
+      throw err.getCause();
+    }
+    return parser.getTripleStore().size();
+  }
+
+  /**
+   * Creates the writer of a format for the data of a parser.
+   * @param format (Format) the output format.
+   * @param out (OutputStream) the destination of the output.
+   * @param parser (TurtleParser) the parser whose prefixes and base URL the output uses.
+   * @return (TripleWriter) the writer.
+   */
+  static TripleWriter writer(Format format, OutputStream out, TurtleParser parser) {
+    return writer(format, out, parser.getPrefixMap(), parser.getBaseURL());
+  }
+
+  /**
+   * Creates the writer of a format.
+   * @param format (Format) the output format.
+   * @param out (OutputStream) the destination of the output.
+   * @param prefixes (PrefixMap) the prefixes that turtle output declares and compacts IRIs with.
+   * @param baseURL (String) the URL that is put in front of blank node IDs, collection IDs and relative names.
+   * @return (TripleWriter) the writer.
+   */
+  static TripleWriter writer(Format format, OutputStream out, PrefixMap prefixes, String baseURL) {
+    switch (format) {
+      case TURTLE:
+        return new TurtleWriter(out, prefixes, baseURL);
+      case CSV:
+        return new CsvWriter(out, ",", '"');
+      default:
+        return new NTriplesWriter(out, baseURL);
+    }
+  }
+
+  /**
+   * Returns the output file of an input file: the same path relative to the output directory, with the extension of the format.
+   * @param root (Path) the directory that the input paths are relative to.
+   * @param input (Path) the turtle file.
+   * @return (Path) the output file.
+   */
+  private Path output(Path root, Path input) {
+    String relative = root.relativize(input).toString();
+    int dot = relative.lastIndexOf('.');
+    if (dot > relative.lastIndexOf('/')) relative = relative.substring(0, dot);
+    return outputDirectory.resolve(relative + format.extension);
+  }
+
+  private void report(String line) {
+    synchronized (progress) {
+      progress.println(line);
+    }
+  }
+
+  private static long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException err) {
+      return 0;
+    }
+  }
+
+  /**
+   * Returns the length of the part of a glob before its first wildcard.
+   * @param pattern (String) the glob.
+   * @return (int) the index of the first wildcard, or the length of the glob if it has none.
+   */
+  private static int globStart(String pattern) {
+    for (int i = 0; i < pattern.length(); i++)
+      if ("*?[{".indexOf(pattern.charAt(i)) >= 0) return i;
+    return pattern.length();
+  }
+}
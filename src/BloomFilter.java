@@ -0,0 +1,87 @@
+/**
+ * A Bloom filter over 64-bit hashes: a bit array of fixed size that answers whether a hash has been added before,
+ * with no false negatives and a chosen rate of false positives.
+ * Its memory depends only on the number of hashes it is sized for, about 1.2 bytes per hash at a 1% false positive rate,
+ * so it can remember far more values than fit in memory as such.
+ */
+public class BloomFilter {
+
+  private final long[] bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * Creates a filter sized for a number of hashes and a false positive rate.
+   * @param expectedInsertions (long) the number of hashes that will be added.
+   * @param falsePositiveRate (double) the chance that a hash that has not been added is reported as added, between 0 and 1.
+   */
+  public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+    if (expectedInsertions < 1) throw new IllegalArgumentException("The expected number of insertions must be at least 1.");
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) throw new IllegalArgumentException("The false positive rate must be between 0 and 1.");
+    double ln2 = Math.log(2);
+    long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) >>> 6));
+    bits = new long[words];
+    bitCount = 64L * words;
+    hashCount = (int) Math.max(1, Math.min(32, Math.round((double) bitCount / expectedInsertions * ln2)));
+  }
+
+  /**
+   * Adds a hash.
+   * @param hash (long) a well mixed 64-bit hash of the value.
+   * @return (boolean) true if the hash was certainly not added before, false if it probably was.
+   */
+  public boolean add(long hash) {
+    boolean added = false;
+    long step = step(hash);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+      long mask = 1L << bit;
+      int word = (int) (bit >>> 6);
+      if ((bits[word] & mask) == 0) {
+        bits[word] |= mask;
+        added = true;
+      }
+    }
+    return added;
+  }
+
+  /**
+   * Checks if a hash has probably been added.
+   * @param hash (long) a well mixed 64-bit hash of the value.
+   * @return (boolean) false if the hash has certainly not been added, true if it probably has.
+   */
+  public boolean mightContain(long hash) {
+    long step = step(hash);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the size of the bit array.
+   * @return (long) the number of bits.
+   */
+  public long getBitCount() {
+    return bitCount;
+  }
+
+  /**
+   * Returns the number of bits that are set for every hash.
+   * @return (int) the number of hash functions.
+   */
+  public int getHashCount() {
+    return hashCount;
+  }
+
+  /**
+   * Derives the distance between the bits of a hash from a second hash, so that k bits cost one hash of the value.
+   * @param hash (long) the hash.
+   * @return (long) an odd step.
+   */
+  private static long step(long hash) {
+    return LongHashSet.mix(hash + 0x9E3779B97F4A7C15L) | 1;
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * A Count-Min sketch that estimates how often each 64-bit hash has been added, in a fixed amount of memory.
+ * Every hash increments one counter in each of a few rows, and its count is the smallest of those counters, so an
+ * estimate is never too low and is too high by at most about e / width of the total count with a probability of
+ * 1 - e^-depth. That is accurate for the values that occur often, which is what heavy hitters are found with.
+ */
+public class CountMinSketch {
+
+  private final long[] counters;
+  private final int width;
+  private final int depth;
+  private long total = 0;
+
+  /**
+   * Creates an empty sketch.
+   * @param width (int) the number of counters per row, which is rounded up to a power of two.
+   * @param depth (int) the number of rows, between 1 and 16.
+   */
+  public CountMinSketch(int width, int depth) {
+    if (width < 1 || width > 1 << 24) throw new IllegalArgumentException("The width must be between 1 and 2^24.");
+    if (depth < 1 || depth > 16) throw new IllegalArgumentException("The depth must be between 1 and 16.");
+    int capacity = 1;
+    while (capacity < width) capacity <<= 1;
+    this.width = capacity;
+    this.depth = depth;
+    this.counters = new long[this.width * depth];
+  }
+
+  /**
+   * Adds occurrences of a hash.
+   * @param hash (long) a well mixed 64-bit hash of the value.
+   * @param count (long) the number of occurrences to add.
+   * @return (long) the estimated count of the hash after adding.
+   */
+  public long add(long hash, long count) {
+    total += count;
+    long step = step(hash);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int counter = row * width + (int) ((hash + row * step) & (width - 1));
+      counters[counter] += count;
+      estimate = Math.min(estimate, counters[counter]);
+    }
+    return estimate;
+  }
+
+  /**
+   * Estimates how often a hash has been added.
+   * @param hash (long) a well mixed 64-bit hash of the value.
+   * @return (long) the estimated count, which is never lower than the actual count.
+   */
+  public long estimate(long hash) {
+    long step = step(hash);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) estimate = Math.min(estimate, counters[row * width + (int) ((hash + row * step) & (width - 1))]);
+    return estimate;
+  }
+
+  /**
+   * Returns the total of all counts that have been added.
+   * @return (long) the total count.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the number of counters per row.
+   * @return (int) the width.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Derives the distance between the counters of a hash in consecutive rows from a second hash, as in {@link BloomFilter}.
+   * @param hash (long) the hash.
+   * @return (long) an odd step.
+   */
+  private static long step(long hash) {
+    return LongHashSet.mix(hash + 0x9E3779B97F4A7C15L) | 1;
+  }
+}
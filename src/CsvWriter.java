@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes triples as rows of delimiter-separated values with a 'Subject', 'Predicate', 'Object' header.
+ * By default the terms are written as they are, which suits tab-separated output; the tabs and line breaks that a literal
+ * can only contain through an escape are written as the escapes \t, \n and \r again, so that every row stays on one line.
+ * With a quote character the rows follow RFC 4180: a field that contains the delimiter, the quote or a line break is
+ * enclosed in quotes and the quotes inside it are doubled.
+ */
+public class CsvWriter extends TripleWriter {
+
+  private final String delimiter;
+  private final char quote;
+  private final boolean quoted;
+
+  /**
+   * Creates a writer that writes the terms without escaping them.
+   * @param out (OutputStream) the destination of the rows.
+   * @param delimiter (String) the separator between the fields of a row.
+   */
+  public CsvWriter(OutputStream out, String delimiter) {
+    super(out);
+    this.delimiter = delimiter;
+    this.quote = 0;
+    this.quoted = false;
+  }
+
+  /**
+   * Creates a writer that quotes the fields that need it.
+   * @param out (OutputStream) the destination of the rows.
+   * @param delimiter (String) the separator between the fields of a row.
+   * @param quote (char) the ASCII character used to enclose fields, usually '"'.
+   */
+  public CsvWriter(OutputStream out, String delimiter, char quote) {
+    super(out);
+    this.delimiter = delimiter;
+    this.quote = quote;
+    this.quoted = true;
+  }
+
+  @Override
+  protected void writeHeader() throws IOException {
+    writeRow("Subject", "Predicate", "Object");
+  }
+
+  @Override
+  protected void writeTriple(String subject, String predicate, String object) throws IOException {
+    writeRow(subject, predicate, object);
+  }
+
+  private void writeRow(String subject, String predicate, String object) throws IOException {
+    writeField(subject);
+    write(delimiter);
+    writeField(predicate);
+    write(delimiter);
+    writeField(object);
+    write('\n');
+  }
+
+  private void writeField(String field) throws IOException {
+    if (!quoted) {
+      writeRaw(field);
+      return;
+    }
+    if (!needsQuotes(field)) {
+      write(field);
+      return;
+    }
+    write(quote);
+    int start = 0;
+    for (int i = field.indexOf(quote); i >= 0; i = field.indexOf(quote, i + 1)) {
+      write(field, start, i + 1);
+      write(quote);
+      start = i + 1;
+    }
+    write(field, start, field.length());
+    write(quote);
+  }
+
+  private void writeRaw(String field) throws IOException {
+    int start = 0;
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+      if (c != '\t' && c != '\n' && c != '\r') continue;
+      write(field, start, i);
+      write(c == '\t' ? "\\t" : c == '\n' ? "\\n" : "\\r");
+      start = i + 1;
+    }
+    write(field, start, field.length());
+  }
+
+  private boolean needsQuotes(String field) {
+    return field.indexOf(quote) >= 0 || field.contains(delimiter) || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+  }
+}
@@ -0,0 +1,439 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * A parsed graph saved in a compact binary file that can be reloaded without parsing the turtle data again.
+ * The file is memory-mapped when it is opened and terms are only decoded when they are accessed, so opening a snapshot
+ * costs little more than verifying its checksum.
+ *
+ * The file starts with a fixed-size header containing a magic number, the format version, a CRC32C checksum of the rest
+ * of the file, the counts and the offsets of the sections. The sections are, in order:
+ * the prefix table and base URL; the terms; the offset of every term; the triples as term IDs; and the offset of every
+ * block of triples.
+ * A term is stored as the index of the longest namespace from the prefix table that it starts with (or 0 if there is none,
+ * otherwise the position of the prefix plus 1) followed by the UTF-8 bytes of the rest of the term.
+ * Each triple is stored as three variable-length integers holding the zigzag-encoded difference between its subject,
+ * predicate and object IDs and those of the previous triple. The differences restart at the beginning of every block of
+ * {@value #BLOCK_SIZE} triples so that a single triple can be found without decoding the triples before its block.
+ * Blank node and collection IDs are stored as ordinary terms together with the number of each that were handed out,
+ * so that a snapshot describes the same IDs as the parse it was made from.
+ * Files are limited to 2 GB because they are mapped as a single buffer.
+ */
+public class GraphSnapshot {
+
+  private static final int MAGIC = 0x54544C53; // 'TTLS'
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 64;
+
+  // the number of triples in a block, each block can be decoded independently.
+  static final int BLOCK_SIZE = 128;
+
+  private final ByteBuffer data;
+  private final String[] terms;
+  private final int termCount;
+  private final int tripleCount;
+  private final int blankNodeCount;
+  private final int collectionCount;
+  private final int termBytesOffset;
+  private final int termIndexOffset;
+  private final int tripleOffset;
+  private final int blockIndexOffset;
+  private final PrefixMap prefixes = new PrefixMap();
+  private final String[] namespaces;
+  private final String baseURL;
+
+  private GraphSnapshot(ByteBuffer data) throws IOException {
+    this.data = data;
+    if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) throw new IOException("Not a graph snapshot.");
+    if (data.getInt(4) != VERSION) throw new IOException("Unsupported snapshot version " + data.getInt(4) + ".");
+    termCount = data.getInt(16);
+    tripleCount = data.getInt(20);
+    blankNodeCount = data.getInt(24);
+    collectionCount = data.getInt(28);
+    int prefixOffset = data.getInt(32);
+    termBytesOffset = data.getInt(36);
+    termIndexOffset = data.getInt(40);
+    tripleOffset = data.getInt(44);
+    blockIndexOffset = data.getInt(48);
+    if (data.getInt(52) != data.limit()) throw new IOException("The snapshot is truncated.");
+
+    CRC32C checksum = new CRC32C();
+    checksum.update(data.slice(HEADER_SIZE, data.limit() - HEADER_SIZE));
+    if ((int) checksum.getValue() != data.getInt(8)) throw new IOException("The snapshot is corrupt.");
+
+    Reader reader = new Reader(data, prefixOffset);
+    baseURL = reader.readString();
+    namespaces = new String[reader.readVarInt()];
+    for (int i = 0; i < namespaces.length; i++) {
+      String label = reader.readString();
+      namespaces[i] = reader.readString();
+      prefixes.declare(label, namespaces[i]);
+    }
+    terms = new String[termCount];
+  }
+
+  /**
+   * Saves the data of a parser in a snapshot file, replacing the file if it exists.
+   * @param parser (TurtleParser) a parser that has parsed its data into its triple store.
+   * @param path (Path) the snapshot file.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void save(TurtleParser parser, Path path) throws IOException {
+    TripleStore store = parser.getTripleStore();
+    TermDictionary dictionary = store.getDictionary();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      Output out = new Output(channel, HEADER_SIZE);
+
+      int prefixOffset = out.offset();
+      out.writeString(parser.getBaseURL());
+      PrefixMap prefixes = parser.getPrefixMap();
+      // a namespace is referred to by the position of its first prefix, as the reader numbers the entries of the table.
+      Map<String, Integer> namespaces = new HashMap<>();
+      int position = 0;
+      out.writeVarInt(prefixes.asMap().size());
+      for (Map.Entry<String, String> prefix : prefixes.asMap().entrySet()) {
+        out.writeString(prefix.getKey());
+        out.writeString(prefix.getValue());
+        namespaces.putIfAbsent(prefix.getValue(), ++position);
+      }
+
+      int termBytesOffset = out.offset();
+      int[] termOffsets = new int[dictionary.size() + 1];
+      for (int id = 0; id < dictionary.size(); id++) {
+        termOffsets[id] = out.offset() - termBytesOffset;
+        String term = dictionary.decode(id);
+        String namespace = prefixes.matchNamespace(term);
+        if (namespace == null) {
+          out.writeVarInt(0);
+          out.writeBytes(term.getBytes(StandardCharsets.UTF_8));
+        } else {
+          out.writeVarInt(namespaces.get(namespace));
+          out.writeBytes(term.substring(namespace.length()).getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      termOffsets[dictionary.size()] = out.offset() - termBytesOffset;
+
+      int termIndexOffset = out.offset();
+      for (int termOffset : termOffsets) out.writeInt(termOffset);
+
+      int tripleOffset = out.offset();
+      int[] blockOffsets = new int[(store.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+      int subject = 0, predicate = 0, object = 0;
+      for (int i = 0; i < store.size(); i++) {
+        if (i % BLOCK_SIZE == 0) {
+          blockOffsets[i / BLOCK_SIZE] = out.offset() - tripleOffset;
+          subject = predicate = object = 0;
+        }
+        out.writeVarInt(zigzag(store.getSubject(i) - subject));
+        out.writeVarInt(zigzag(store.getPredicate(i) - predicate));
+        out.writeVarInt(zigzag(store.getObject(i) - object));
+        subject = store.getSubject(i);
+        predicate = store.getPredicate(i);
+        object = store.getObject(i);
+      }
+
+      int blockIndexOffset = out.offset();
+      for (int blockOffset : blockOffsets) out.writeInt(blockOffset);
+      int checksum = out.finish();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(VERSION).putInt(checksum).putInt(0);
+      header.putInt(dictionary.size()).putInt(store.size()).putInt(parser.getBlankNodeCount()).putInt(parser.getCollectionCount());
+      header.putInt(prefixOffset).putInt(termBytesOffset).putInt(termIndexOffset).putInt(tripleOffset).putInt(blockIndexOffset);
+      header.putInt(out.offset());
+      header.clear();
+      while (header.hasRemaining()) channel.write(header, header.position());
+    }
+  }
+
+  /**
+   * Opens a snapshot file by memory-mapping it and verifying its checksum.
+   * @param path (Path) the snapshot file.
+   * @return (GraphSnapshot) the snapshot.
+   * @throws IOException if the file cannot be read, or is not a valid snapshot.
+   */
+  public static GraphSnapshot open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) throw new IOException("The snapshot is larger than 2 GB.");
+      return new GraphSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Returns the number of triples in the snapshot.
+   * @return (int) the number of triples.
+   */
+  public int size() {
+    return tripleCount;
+  }
+
+  /**
+   * Returns the number of distinct terms in the snapshot.
+   * @return (int) the number of terms.
+   */
+  public int getTermCount() {
+    return termCount;
+  }
+
+  /**
+   * Returns a term, decoding it the first time it is requested.
+   * @param id (int) the ID of the term, as used by the {@link TermDictionary} of the parser the snapshot was made from.
+   * @return (String) the term.
+   */
+  public String decode(int id) {
+    if (id < 0 || id >= termCount) throw new IndexOutOfBoundsException("Unknown term ID " + id + ".");
+    String term = terms[id];
+    if (term == null) {
+      Reader reader = new Reader(data, termBytesOffset + data.getInt(termIndexOffset + id * 4));
+      int namespace = reader.readVarInt();
+      byte[] bytes = new byte[termBytesOffset + data.getInt(termIndexOffset + id * 4 + 4) - reader.position];
+      data.get(reader.position, bytes);
+      String rest = new String(bytes, StandardCharsets.UTF_8);
+      // a racing thread decodes the same string, so the cache needs no synchronization.
+      term = namespace == 0 ? rest : namespaces[namespace - 1].concat(rest);
+      terms[id] = term;
+    }
+    return term;
+  }
+
+  /**
+   * Returns the term IDs of a triple.
+   * @param index (int) index of the triple.
+   * @return (int[]) an array of length 3 containing the IDs of the subject, predicate and object.
+   */
+  public int[] getIDs(int index) {
+    if (index < 0 || index >= tripleCount) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + tripleCount + ".");
+    Cursor cursor = new Cursor(index - index % BLOCK_SIZE);
+    while (cursor.index < index) cursor.advance();
+    return cursor.next();
+  }
+
+  /**
+   * Returns the triple data, like {@link TripleStore#asList()}.
+   * Iterating over the list decodes the triples in a single pass, while {@link List#get(int)} decodes the block of the triple.
+   * @return (List<String[]>) the triple data as a read-only list containing string arrays of length 3.
+   */
+  public List<String[]> getData() {
+    return new AbstractList<>() {
+      @Override
+      public String[] get(int index) {
+        return toStrings(getIDs(index));
+      }
+
+      @Override
+      public int size() {
+        return tripleCount;
+      }
+
+      @Override
+      public Iterator<String[]> iterator() {
+        Cursor cursor = new Cursor(0);
+        return new Iterator<>() {
+          @Override
+          public boolean hasNext() {
+            return cursor.index < tripleCount;
+          }
+
+          @Override
+          public String[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return toStrings(cursor.next());
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Writes all of the triples with a writer and ends its output, without closing the stream it writes to.
+   * @param writer (TripleWriter) the writer.
+   * @throws IOException if the output cannot be written.
+   */
+  public void printData(TripleWriter writer) throws IOException {
+    Cursor cursor = new Cursor(0);
+    while (cursor.index < tripleCount) {
+      cursor.advance();
+      writer.write(decode(cursor.subject), decode(cursor.predicate), decode(cursor.object));
+    }
+    writer.finish();
+  }
+
+  /**
+   * Returns the prefixes that were declared in the turtle data.
+   * @return (PrefixMap) the prefixes, including the base which has an empty label.
+   */
+  public PrefixMap getPrefixMap() {
+    return prefixes;
+  }
+
+  /**
+   * Returns the URL that is put in front of blank node IDs, collection IDs and relative names in the output.
+   * @return (String) the first base URL declared in the turtle data, or an example URL if there was none.
+   */
+  public String getBaseURL() {
+    return baseURL;
+  }
+
+  /**
+   * Returns the number of blank node IDs that were handed out by the parser.
+   * @return (int) the number of blank nodes.
+   */
+  public int getBlankNodeCount() {
+    return blankNodeCount;
+  }
+
+  /**
+   * Returns the number of collection IDs that were handed out by the parser.
+   * @return (int) the number of collections.
+   */
+  public int getCollectionCount() {
+    return collectionCount;
+  }
+
+  private String[] toStrings(int[] ids) {
+    return new String[]{decode(ids[0]), decode(ids[1]), decode(ids[2])};
+  }
+
+  /**
+   * Decodes the triples one after another, starting at the beginning of a block.
+   */
+  private class Cursor {
+
+    private final Reader reader;
+    private int index;
+    private int subject, predicate, object;
+
+    Cursor(int index) {
+      this.index = index;
+      this.reader = new Reader(data, tripleOffset + data.getInt(blockIndexOffset + index / BLOCK_SIZE * 4));
+    }
+
+    void advance() {
+      if (index % BLOCK_SIZE == 0) subject = predicate = object = 0;
+      subject += unzigzag(reader.readVarInt());
+      predicate += unzigzag(reader.readVarInt());
+      object += unzigzag(reader.readVarInt());
+      index++;
+    }
+
+    int[] next() {
+      advance();
+      return new int[]{subject, predicate, object};
+    }
+  }
+
+  /**
+   * Reads variable-length integers and strings from a position in the snapshot.
+   */
+  private static class Reader {
+
+    private final ByteBuffer data;
+    private int position;
+
+    Reader(ByteBuffer data, int position) {
+      this.data = data;
+      this.position = position;
+    }
+
+    int readVarInt() {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = data.get(position++);
+        value |= (b & 0x7F) << shift;
+        if (b >= 0) return value;
+      }
+    }
+
+    String readString() {
+      int length = readVarInt();
+      byte[] bytes = new byte[length];
+      data.get(position, bytes);
+      position += length;
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Buffers the body of a snapshot file and computes its checksum while it is written.
+   */
+  private static class Output {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 << 10);
+    private final CRC32C checksum = new CRC32C();
+    private long written;
+
+    Output(FileChannel channel, int start) {
+      this.channel = channel;
+      this.written = start;
+    }
+
+    int offset() throws IOException {
+      long offset = written + buffer.position();
+      if (offset > Integer.MAX_VALUE) throw new IOException("The snapshot would be larger than 2 GB.");
+      return (int) offset;
+    }
+
+    void writeInt(int value) throws IOException {
+      if (buffer.remaining() < 4) drain();
+      buffer.putInt(value);
+    }
+
+    void writeVarInt(int value) throws IOException {
+      if (buffer.remaining() < 5) drain();
+      while ((value & ~0x7F) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+      int start = 0;
+      while (start < bytes.length) {
+        if (!buffer.hasRemaining()) drain();
+        int length = Math.min(bytes.length - start, buffer.remaining());
+        buffer.put(bytes, start, length);
+        start += length;
+      }
+    }
+
+    void writeString(String s) throws IOException {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length);
+      writeBytes(bytes);
+    }
+
+    int finish() throws IOException {
+      drain();
+      return (int) checksum.getValue();
+    }
+
+    private void drain() throws IOException {
+      buffer.flip();
+      checksum.update(buffer.duplicate());
+      while (buffer.hasRemaining()) written += channel.write(buffer, written);
+      buffer.clear();
+    }
+  }
+
+  private static int zigzag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int unzigzag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
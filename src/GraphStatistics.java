@@ -0,0 +1,399 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profiles the triples of a parse as they pass by on their way to the next sink, such as a {@link TripleStore} or a
+ * {@link TripleWriter}, so that the data does not have to be read a second time to describe it.
+ *
+ * The predicates, datatypes and language tags are counted exactly, since there are few of them. The number of distinct
+ * subjects and objects is estimated with a {@link HyperLogLog} of 16 KB each, with an error of about 1%, and the most
+ * frequent subjects and objects are found with a {@link CountMinSketch} of 512 KB each and a short list of candidates,
+ * so the memory of the profile does not grow with the data. Literals without a datatype count as xsd:string, literals
+ * with a language tag as rdf:langString, and plain numbers and booleans with the datatype that Turtle gives them.
+ *
+ * The profile is available as a summary from {@link #toString()}, or as a JSON report from {@link #toJson()}.
+ */
+public class GraphStatistics implements TripleSink {
+
+  private static final int PRECISION = 14;
+  private static final int SKETCH_WIDTH = 1 << 14;
+  private static final int SKETCH_DEPTH = 4;
+  private static final int HEAVY_HITTERS = 10;
+
+  private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+  private static final String LANG_STRING = "http://www.w3.org/1999/02/22-rdf-syntax-ns#langString";
+
+  private static final String BLANK_NODE_LABEL = "blank_node_(id=";
+  private static final String COLLECTION_LABEL = "collection_(id=";
+
+  private final TripleSink next;
+
+  private long triples = 0;
+  private long iriObjects = 0;
+  private long literalObjects = 0;
+  private long valueObjects = 0;
+  private long blankNodeObjects = 0;
+  private long collectionObjects = 0;
+
+  // the number of blank node and collection IDs handed out by the parser, which numbers them from 0.
+  private long blankNodeIds = 0;
+  private long collectionIds = 0;
+  // blank nodes with a label of their own, as in N-Triples.
+  private final HyperLogLog labeledBlankNodes = new HyperLogLog(PRECISION);
+
+  private final HashMap<String, long[]> predicates = new HashMap<>();
+  private final HashMap<String, long[]> datatypes = new HashMap<>();
+  private final HashMap<String, long[]> languages = new HashMap<>();
+
+  private final HyperLogLog subjects = new HyperLogLog(PRECISION);
+  private final HyperLogLog objects = new HyperLogLog(PRECISION);
+  private final HeavyHitters topSubjects = new HeavyHitters();
+  private final HeavyHitters topObjects = new HeavyHitters();
+
+  /**
+   * Creates a profile that only collects the statistics.
+   */
+  public GraphStatistics() {
+    this(null);
+  }
+
+  /**
+   * Creates a profile that passes every triple on to another sink.
+   * @param next (TripleSink) receives the triples after they have been counted, or null.
+   */
+  public GraphStatistics(TripleSink next) {
+    this.next = next;
+  }
+
+  @Override
+  public void accept(Triple triple) {
+    triples++;
+    String subject = triple.subject();
+    String object = triple.object();
+    count(predicates, triple.predicate());
+
+    long subjectHash = LongHashSet.hash(subject);
+    subjects.add(subjectHash);
+    topSubjects.add(subject, subjectHash);
+    countNode(subject, false);
+
+    long objectHash = LongHashSet.hash(object);
+    objects.add(objectHash);
+    topObjects.add(object, objectHash);
+    if (!countNode(object, true)) countValue(object);
+
+    if (next != null) next.accept(triple);
+  }
+
+  @Override
+  public void finish() {
+    if (next != null) next.finish();
+  }
+
+  /**
+   * Counts a blank node or collection, whose ID tells how many have been handed out.
+   * @param term (String) a subject or object.
+   * @param object (boolean) true if the term is an object.
+   * @return (boolean) true if the term is a blank node or collection.
+   */
+  private boolean countNode(String term, boolean object) {
+    if (term.startsWith(BLANK_NODE_LABEL)) {
+      blankNodeIds = Math.max(blankNodeIds, id(term) + 1);
+      if (object) blankNodeObjects++;
+    } else if (term.startsWith(COLLECTION_LABEL)) {
+      collectionIds = Math.max(collectionIds, id(term) + 1);
+      if (object) collectionObjects++;
+    } else if (term.startsWith("_:")) {
+      labeledBlankNodes.add(LongHashSet.hash(term));
+      if (object) blankNodeObjects++;
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Counts an object that is not a blank node or collection: a literal, a plain number or boolean, or an IRI.
+   * @param object (String) the object.
+   */
+  private void countValue(String object) {
+    if (object.startsWith("\"")) {
+      literalObjects++;
+      int end = object.lastIndexOf('"');
+      if (object.startsWith("^^", end + 1)) {
+        count(datatypes, object.substring(end + 3));
+      } else if (object.startsWith("@", end + 1)) {
+        count(datatypes, LANG_STRING);
+        count(languages, object.substring(end + 2));
+      } else {
+        count(datatypes, XSD + "string");
+      }
+      return;
+    }
+    String datatype = valueDatatype(object);
+    if (datatype == null) {
+      iriObjects++;
+    } else {
+      valueObjects++;
+      count(datatypes, XSD + datatype);
+    }
+  }
+
+  /**
+   * Returns the datatype of a number or boolean written without quotes.
+   * @param value (String) the object.
+   * @return (String) the local name of the XSD datatype, or null if the object is not a number or boolean.
+   */
+  static String valueDatatype(String value) {
+    if (value.equals("true") || value.equals("false")) return "boolean";
+    boolean digits = false;
+    boolean dot = false;
+    boolean exponent = false;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= '0' && c <= '9') digits = true;
+      else if ((c == '+' || c == '-') && (i == 0 || value.charAt(i - 1) == 'e' || value.charAt(i - 1) == 'E')) continue;
+      else if (c == '.' && !dot && !exponent) dot = true;
+      else if ((c == 'e' || c == 'E') && digits && !exponent) exponent = true;
+      else return null;
+    }
+    if (!digits) return null;
+    return exponent ? "double" : dot ? "decimal" : "integer";
+  }
+
+  private static long id(String label) {
+    long id = 0;
+    for (int i = label.indexOf('=') + 1; i < label.length() && label.charAt(i) >= '0' && label.charAt(i) <= '9'; i++)
+      id = id * 10 + label.charAt(i) - '0';
+    return id;
+  }
+
+  private static void count(HashMap<String, long[]> counts, String key) {
+    long[] count = counts.get(key);
+    if (count == null) counts.put(key, count = new long[1]);
+    count[0]++;
+  }
+
+  /**
+   * Returns the number of triples that were counted.
+   * @return (long) the number of triples.
+   */
+  public long getTriples() {
+    return triples;
+  }
+
+  /**
+   * Estimates the number of distinct subjects.
+   * @return (long) the estimate.
+   */
+  public long getDistinctSubjects() {
+    return subjects.estimate();
+  }
+
+  /**
+   * Estimates the number of distinct objects.
+   * @return (long) the estimate.
+   */
+  public long getDistinctObjects() {
+    return objects.estimate();
+  }
+
+  /**
+   * Returns the number of blank nodes, which is estimated for blank nodes that have a label in the data.
+   * @return (long) the number of blank nodes.
+   */
+  public long getBlankNodes() {
+    return blankNodeIds + labeledBlankNodes.estimate();
+  }
+
+  /**
+   * Returns the number of collections.
+   * @return (long) the number of collections.
+   */
+  public long getCollections() {
+    return collectionIds;
+  }
+
+  /**
+   * Returns the number of objects that are literals between quotes.
+   * @return (long) the number of literals.
+   */
+  public long getLiterals() {
+    return literalObjects;
+  }
+
+  /**
+   * Returns the number of triples of every predicate.
+   * @return (Map<String, Long>) the counts, from the most used predicate to the least used.
+   */
+  public Map<String, Long> getPredicateCounts() {
+    return sorted(predicates);
+  }
+
+  /**
+   * Returns the number of literals, numbers and booleans of every datatype.
+   * @return (Map<String, Long>) the counts, from the most used datatype to the least used.
+   */
+  public Map<String, Long> getDatatypeCounts() {
+    return sorted(datatypes);
+  }
+
+  /**
+   * Returns the number of literals of every language tag.
+   * @return (Map<String, Long>) the counts, from the most used language tag to the least used.
+   */
+  public Map<String, Long> getLanguageCounts() {
+    return sorted(languages);
+  }
+
+  /**
+   * Returns the subjects with the most triples.
+   * @return (Map<String, Long>) up to ten subjects with their estimated number of triples, the most frequent first.
+   */
+  public Map<String, Long> getTopSubjects() {
+    return topSubjects.get();
+  }
+
+  /**
+   * Returns the objects that occur in the most triples.
+   * @return (Map<String, Long>) up to ten objects with their estimated number of triples, the most frequent first.
+   */
+  public Map<String, Long> getTopObjects() {
+    return topObjects.get();
+  }
+
+  /**
+   * Returns a summary of the profile.
+   * @return (String) the summary, with the totals followed by the counts of every predicate, datatype and language tag.
+   */
+  @Override
+  public String toString() {
+    StringBuilder summary = new StringBuilder();
+    summary.append(String.format("Profiled %d triples: ~%d distinct subjects, %d predicates, ~%d distinct objects%n", triples,
+        getDistinctSubjects(), predicates.size(), getDistinctObjects()));
+    summary.append(String.format("  objects: %d IRIs, %d literals, %d numbers and booleans, %d blank nodes, %d collections%n",
+        iriObjects, literalObjects, valueObjects, blankNodeObjects, collectionObjects));
+    summary.append(String.format("  blank nodes: %d, collections: %d%n", getBlankNodes(), getCollections()));
+    appendCounts(summary, "predicates", getPredicateCounts());
+    appendCounts(summary, "datatypes", getDatatypeCounts());
+    appendCounts(summary, "languages", getLanguageCounts());
+    appendCounts(summary, "top subjects (estimated)", getTopSubjects());
+    appendCounts(summary, "top objects (estimated)", getTopObjects());
+    return summary.toString();
+  }
+
+  private static void appendCounts(StringBuilder summary, String title, Map<String, Long> counts) {
+    if (counts.isEmpty()) return;
+    summary.append("  ").append(title).append(':').append(System.lineSeparator());
+    for (Map.Entry<String, Long> count : counts.entrySet())
+      summary.append(String.format("    %10d  %s%n", count.getValue(), count.getKey()));
+  }
+
+  /**
+   * Returns the profile as a JSON object.
+   * @return (String) the report, with the totals and the counts of every predicate, datatype and language tag as
+   * objects from term to count.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\n");
+    json.append("  \"triples\": ").append(triples).append(",\n");
+    json.append("  \"distinctSubjects\": ").append(getDistinctSubjects()).append(",\n");
+    json.append("  \"distinctPredicates\": ").append(predicates.size()).append(",\n");
+    json.append("  \"distinctObjects\": ").append(getDistinctObjects()).append(",\n");
+    json.append("  \"objects\": {\"iris\": ").append(iriObjects).append(", \"literals\": ").append(literalObjects)
+        .append(", \"numbersAndBooleans\": ").append(valueObjects).append(", \"blankNodes\": ").append(blankNodeObjects)
+        .append(", \"collections\": ").append(collectionObjects).append("},\n");
+    json.append("  \"blankNodes\": ").append(getBlankNodes()).append(",\n");
+    json.append("  \"collections\": ").append(getCollections()).append(",\n");
+    appendJson(json, "predicates", getPredicateCounts());
+    json.append(",\n");
+    appendJson(json, "datatypes", getDatatypeCounts());
+    json.append(",\n");
+    appendJson(json, "languages", getLanguageCounts());
+    json.append(",\n");
+    appendJson(json, "topSubjects", getTopSubjects());
+    json.append(",\n");
+    appendJson(json, "topObjects", getTopObjects());
+    return json.append("\n}\n").toString();
+  }
+
+  private static void appendJson(StringBuilder json, String name, Map<String, Long> counts) {
+    json.append("  \"").append(name).append("\": {");
+    String separator = "\n";
+    for (Map.Entry<String, Long> count : counts.entrySet()) {
+      json.append(separator).append("    ");
+      appendJsonString(json, count.getKey());
+      json.append(": ").append(count.getValue());
+      separator = ",\n";
+    }
+    json.append(counts.isEmpty() ? "}" : "\n  }");
+  }
+
+  private static void appendJsonString(StringBuilder json, String text) {
+    json.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') json.append('\\').append(c);
+      else if (c < ' ') json.append(String.format("\\u%04x", (int) c));
+      else json.append(c);
+    }
+    json.append('"');
+  }
+
+  private static Map<String, Long> sorted(Map<String, long[]> counts) {
+    List<Map.Entry<String, long[]>> entries = new ArrayList<>(counts.entrySet());
+    entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0] ? Long.compare(b.getValue()[0], a.getValue()[0]) : a.getKey().compareTo(b.getKey()));
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Map.Entry<String, long[]> entry : entries) result.put(entry.getKey(), entry.getValue()[0]);
+    return result;
+  }
+
+  /**
+   * Finds the most frequent terms with a Count-Min sketch and a few candidates: a term becomes a candidate when its estimated
+   * count exceeds that of the least frequent candidate, which it then replaces.
+   */
+  private static class HeavyHitters {
+
+    private final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+    // the candidates and their hashes.
+    private final HashMap<String, Long> candidates = new HashMap<>();
+    // the lowest estimate of a candidate when it was last computed; estimates only grow, so it can only be too low.
+    private long threshold = 0;
+
+    void add(String term, long hash) {
+      long count = sketch.add(hash, 1);
+      if (count <= threshold || candidates.containsKey(term)) return;
+      if (candidates.size() == HEAVY_HITTERS) {
+        String least = null;
+        long leastCount = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+          long estimate = sketch.estimate(candidate.getValue());
+          if (estimate < leastCount) {
+            least = candidate.getKey();
+            leastCount = estimate;
+          }
+        }
+        if (count <= leastCount) {
+          threshold = leastCount;
+          return;
+        }
+        candidates.remove(least);
+      }
+      candidates.put(term, hash);
+      if (candidates.size() == HEAVY_HITTERS) {
+        threshold = Long.MAX_VALUE;
+        for (long candidate : candidates.values()) threshold = Math.min(threshold, sketch.estimate(candidate));
+      }
+    }
+
+    Map<String, Long> get() {
+      HashMap<String, long[]> counts = new HashMap<>();
+      for (Map.Entry<String, Long> candidate : candidates.entrySet())
+        counts.put(candidate.getKey(), new long[] { sketch.estimate(candidate.getValue()) });
+      return sorted(counts);
+    }
+  }
+}
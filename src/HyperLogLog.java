@@ -0,0 +1,68 @@
+/**
+ * A HyperLogLog sketch that estimates the number of distinct 64-bit hashes it has been given, in a fixed amount of memory.
+ * The hashes are spread over 2^precision registers, each of which remembers the longest run of leading zeros it has
+ * seen; a sketch takes one byte per register and has a standard error of about 1.04 / sqrt(2^precision), for example
+ * 0.8% in 16 KB at precision 14, however many values it counts. Small counts are estimated from the number of empty
+ * registers instead, which is exact enough while most registers are still empty.
+ */
+public class HyperLogLog {
+
+  private final int precision;
+  private final byte[] registers;
+
+  /**
+   * Creates an empty sketch.
+   * @param precision (int) the number of bits of the hash that select a register, between 4 and 18.
+   */
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18) throw new IllegalArgumentException("The precision must be between 4 and 18.");
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Adds a hash.
+   * @param hash (long) a well mixed 64-bit hash of the value.
+   */
+  public void add(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // the bit below the remaining bits limits the rank, so that a hash of zeros does not overflow the register.
+    int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    if (rank > registers[index]) registers[index] = (byte) rank;
+  }
+
+  /**
+   * Adds the hashes counted by another sketch of the same precision to this sketch.
+   * @param other (HyperLogLog) the sketch to merge.
+   */
+  public void merge(HyperLogLog other) {
+    if (other.precision != precision) throw new IllegalArgumentException("Cannot merge sketches of different precision.");
+    for (int i = 0; i < registers.length; i++) registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+  }
+
+  /**
+   * Estimates the number of distinct hashes that have been added.
+   * @return (long) the estimate.
+   */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int empty = 0;
+    for (byte register : registers) {
+      sum += Math.scalb(1.0, -register);
+      if (register == 0) empty++;
+    }
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5 * m && empty > 0) estimate = m * Math.log((double) m / empty);
+    return Math.round(estimate);
+  }
+
+  /**
+   * Returns the number of bits of the hash that select a register.
+   * @return (int) the precision.
+   */
+  public int getPrecision() {
+    return precision;
+  }
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ * A set of pairs of primitive longs in a single array with open addressing and linear probing, like a {@link LongHashSet}
+ * whose values are 128 bits wide. The two longs of a pair are kept in adjacent slots of the array, so a lookup still
+ * touches one or two adjacent cache lines.
+ */
+public class LongPairHashSet {
+
+  // the number of pairs is doubled when it is more than half of the capacity.
+  private static final int MIN_CAPACITY = 16;
+
+  // pair i is kept in slots 2i and 2i + 1; (0, 0) marks an empty pair, so that pair is kept apart.
+  private long[] slots;
+  private boolean containsZero = false;
+  private int size = 0;
+
+  /**
+   * Creates an empty set.
+   */
+  public LongPairHashSet() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /**
+   * Creates an empty set that holds a number of pairs without growing.
+   * @param expectedSize (int) the number of pairs expected.
+   */
+  public LongPairHashSet(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < 2L * expectedSize) capacity <<= 1;
+    slots = new long[2 * capacity];
+  }
+
+  /**
+   * Adds a pair.
+   * @param high (long) the first value of the pair.
+   * @param low (long) the second value of the pair.
+   * @return (boolean) true if the pair was added, false if it was already in the set.
+   */
+  public boolean add(long high, long low) {
+    if (high == 0 && low == 0) {
+      if (containsZero) return false;
+      containsZero = true;
+      size++;
+      return true;
+    }
+    int mask = (slots.length >> 1) - 1;
+    int i = slot(high, low) & mask;
+    while (slots[2 * i] != 0 || slots[2 * i + 1] != 0) {
+      if (slots[2 * i] == high && slots[2 * i + 1] == low) return false;
+      i = (i + 1) & mask;
+    }
+    slots[2 * i] = high;
+    slots[2 * i + 1] = low;
+    if (++size > slots.length >> 2) grow();
+    return true;
+  }
+
+  /**
+   * Checks if a pair is in the set.
+   * @param high (long) the first value of the pair.
+   * @param low (long) the second value of the pair.
+   * @return (boolean) true if the pair has been added.
+   */
+  public boolean contains(long high, long low) {
+    if (high == 0 && low == 0) return containsZero;
+    int mask = (slots.length >> 1) - 1;
+    for (int i = slot(high, low) & mask; slots[2 * i] != 0 || slots[2 * i + 1] != 0; i = (i + 1) & mask)
+      if (slots[2 * i] == high && slots[2 * i + 1] == low) return true;
+    return false;
+  }
+
+  /**
+   * Returns the number of pairs in the set.
+   * @return (int) the number of pairs.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes all pairs, keeping the capacity of the set.
+   */
+  public void clear() {
+    Arrays.fill(slots, 0);
+    containsZero = false;
+    size = 0;
+  }
+
+  private void grow() {
+    long[] old = slots;
+    slots = new long[old.length * 2];
+    int mask = (slots.length >> 1) - 1;
+    for (int j = 0; j < old.length; j += 2) {
+      long high = old[j];
+      long low = old[j + 1];
+      if (high == 0 && low == 0) continue;
+      int i = slot(high, low) & mask;
+      while (slots[2 * i] != 0 || slots[2 * i + 1] != 0) i = (i + 1) & mask;
+      slots[2 * i] = high;
+      slots[2 * i + 1] = low;
+    }
+  }
+
+  private static int slot(long high, long low) {
+    return (int) LongHashSet.mix(LongHashSet.mix(high) ^ low);
+  }
+}
@@ -1,7 +1,116 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 public class Main {
-  public static void main(String[] args) {
-    TurtleParser parser = new TurtleParser(args[0]);
-    parser.printDataTurtle();
+  public static void main(String[] args) throws IOException {
+    // usage: Main [--stats] [--dedup] [--profile] [--profile-json file] file, where --stats prints a summary of the parse to stderr,
+    //        --dedup drops triples that are exact duplicates of earlier triples, --profile prints a profile of the triples
+    //        to stderr and --profile-json writes the profile as JSON.
+    //        The repeatable options --predicate url, --namespace url and --object-type iri|literal|blank_node|collection
+    //        keep only the triples with one of the predicates, subjects and types of objects, see TripleFilter.
+    //        --threads n sets the number of threads an N-Triples file is parsed with (the number of cores by default).
+    //    or: Main --batch dir|glob [--out dir] [--format ntriples|turtle|csv] [--threads n] [--memory mb]
+    //        which converts every matched file to a file under the output directory ('out' by default).
+    //    or: Main --parts n [--partition-by subject|predicate] [--range] [--out dir] [--threads n] file
+    //        which exports the triples of the file as n CSV part files with a manifest under the output directory.
+    //    or: Main --serve socket|port [--root dir] [--threads n] [--queue n]
+    //        which stays resident and parses the files that clients send, see ParseServer. Clients may only have it read
+    //        files under the root directory, or any file if there is no root and the server listens on a socket file.
+    //    or: Main --client socket|port [--format ntriples|turtle|csv] file|-
+    //        which has a server parse the file, or the data on stdin, and prints the result.
+    String fileName = null;
+    boolean printStats = false;
+    boolean deduplicate = false;
+    boolean profile = false;
+    String profileJson = null;
+    String batch = null;
+    String outputDirectory = "out";
+    BatchConverter.Format format = BatchConverter.Format.NTRIPLES;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long memory = Runtime.getRuntime().maxMemory() / 2;
+    int parts = 0;
+    PartitionedExporter.Key partitionKey = PartitionedExporter.Key.SUBJECT;
+    PartitionedExporter.Scheme scheme = PartitionedExporter.Scheme.HASH;
+    String serve = null;
+    String client = null;
+    String root = null;
+    int queue = 64;
+    List<String> predicates = new ArrayList<>();
+    List<String> namespaces = new ArrayList<>();
+    List<TripleFilter.ObjectType> objectTypes = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--stats")) printStats = true;
+      else if (args[i].equals("--dedup")) deduplicate = true;
+      else if (args[i].equals("--profile")) profile = true;
+      else if (args[i].equals("--profile-json")) profileJson = args[++i];
+      else if (args[i].equals("--batch")) batch = args[++i];
+      else if (args[i].equals("--out")) outputDirectory = args[++i];
+      else if (args[i].equals("--format")) format = BatchConverter.Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+      else if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+      else if (args[i].equals("--memory")) memory = Long.parseLong(args[++i]) << 20;
+      else if (args[i].equals("--parts")) parts = Integer.parseInt(args[++i]);
+      else if (args[i].equals("--partition-by")) partitionKey = PartitionedExporter.Key.valueOf(args[++i].toUpperCase(Locale.ROOT));
+      else if (args[i].equals("--range")) scheme = PartitionedExporter.Scheme.RANGE;
+      else if (args[i].equals("--serve")) serve = args[++i];
+      else if (args[i].equals("--client")) client = args[++i];
+      else if (args[i].equals("--root")) root = args[++i];
+      else if (args[i].equals("--queue")) queue = Integer.parseInt(args[++i]);
+      else if (args[i].equals("--predicate")) predicates.add(args[++i]);
+      else if (args[i].equals("--namespace")) namespaces.add(args[++i]);
+      else if (args[i].equals("--object-type")) objectTypes.add(TripleFilter.ObjectType.valueOf(args[++i].toUpperCase(Locale.ROOT)));
+      else fileName = args[i];
+    }
+
+    if (batch != null) {
+      BatchConverter converter = new BatchConverter(Paths.get(outputDirectory), format, threads, memory, System.err);
+      if (converter.convert(batch) > 0) System.exit(1);
+      return;
+    }
+
+    if (serve != null) {
+      ParseServer server = new ParseServer(ParseServer.address(serve), threads, queue, root != null ? Paths.get(root) : null, System.err);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          server.close();
+        } catch (IOException err) {
+          // the process is ending anyway.
+        }
+      }));
+      System.err.println("Listening on " + serve);
+      server.serve();
+      return;
+    }
+
+    if (client != null) {
+      if (fileName == null) {
+        System.err.println("usage: Main --client socket|port [--format ntriples|turtle|csv] file|-");
+        System.exit(1);
+      }
+      try {
+        if (fileName.equals("-")) ParseClient.parse(ParseServer.address(client), format, System.in, -1, System.out);
+        else ParseClient.parse(ParseServer.address(client), format, Paths.get(fileName), System.out);
+      } catch (IOException err) {
+        System.err.println(err.getMessage());
+        System.exit(1);
+      }
+      return;
+    }
+
+    TripleFilter filter = null;
+    if (!predicates.isEmpty() || !namespaces.isEmpty() || !objectTypes.isEmpty())
+      filter = new TripleFilter(predicates.isEmpty() ? null : predicates, namespaces.isEmpty() ? null : namespaces,
+          objectTypes.isEmpty() ? null : objectTypes);
+    TurtleParser parser = new TurtleParser(fileName, printStats ? new ParseStats() : null, deduplicate, profile || profileJson != null, filter, threads);
+    if (parts > 0) new PartitionedExporter(Paths.get(outputDirectory), parts, partitionKey, scheme, threads).export(parser.getTripleStore());
+    else parser.printDataTurtle();
     // parser.printDataCSV("\t");
+    if (printStats) System.err.print(parser.getParseStats());
+    if (printStats && deduplicate) System.err.println("  duplicates dropped: " + parser.getDuplicateCount());
+    if (profile) System.err.print(parser.getGraphStatistics());
+    if (profileJson != null) Files.writeString(Paths.get(profileJson), parser.getGraphStatistics().toJson());
   }
 }
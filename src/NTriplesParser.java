@@ -0,0 +1,385 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses N-Triples files, where every line holds one complete triple, without the Turtle machinery.
+ * N-Triples has no prefixes, no ';' or ',' and no nested blank nodes or collections, and a line break can only appear
+ * escaped inside a literal, so the file can be split at any line break. The file is memory-mapped in chunks that end at
+ * a line break and the chunks are parsed on a fork-join pool by a scanner that reads the bytes of each line once and
+ * creates nothing but the {@link Term} slices of its three terms. The triples are passed to the sink in the order of the
+ * file and are the same as those of the Turtle parser, so a file gives the same output whichever parser reads it.
+ */
+public class NTriplesParser {
+
+  // chunks are kept small enough that the triples of the chunks in flight fit comfortably in memory.
+  static final long MAX_CHUNK_SIZE = 16L << 20;
+
+  private NTriplesParser() {
+  }
+
+  /**
+   * The triples of a parsed chunk.
+   * @param triples (List<Triple>) the triples in the order of the chunk, or null if they were passed on while parsing.
+   * @param lines (int) the number of line breaks in the chunk, or before the error.
+   * @param error (String) what was wrong with the line on which parsing stopped, or null if the whole chunk was parsed.
+   * @param stats (ParseStats) the statistics of the chunk, or null.
+   */
+  private record ChunkResult(List<Triple> triples, int lines, String error, ParseStats stats) {
+  }
+
+  /**
+   * Reports a line that is not valid N-Triples. The line number is added by the caller, which knows where the chunk starts.
+   */
+  private static final class LineException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    LineException(String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  /**
+   * Checks if a file should be read as N-Triples, which is the case if its name ends with .nt or .ntriples.
+   * @param path (Path) the file.
+   * @return (boolean) true for an N-Triples file.
+   */
+  public static boolean isNTriples(Path path) {
+    Path name = path.getFileName();
+    if (name == null) return false;
+    String fileName = name.toString().toLowerCase(Locale.ROOT);
+    return fileName.endsWith(".nt") || fileName.endsWith(".ntriples");
+  }
+
+  /**
+   * Parses an N-Triples file and passes its triples to a sink in the order they appear in the file.
+   * @param path (Path) the N-Triples file.
+   * @param threads (int) the number of threads to parse with.
+   * @param sink (TripleSink) receives the triples, and is finished after the last one.
+   * @throws IOException if the file cannot be read.
+   * @throws IllegalArgumentException if a line is not valid N-Triples, after the triples of the lines before it.
+   */
+  public static void parse(Path path, int threads, TripleSink sink) throws IOException {
+    parse(path, threads, null, sink);
+  }
+
+  /**
+   * Parses an N-Triples file, recording statistics.
+   * @param path (Path) the N-Triples file.
+   * @param threads (int) the number of threads to parse with.
+   * @param stats (ParseStats) receives the statistics of all chunks added together, or null.
+   * @param sink (TripleSink) receives the triples, and is finished after the last one.
+   * @throws IOException if the file cannot be read.
+   */
+  static void parse(Path path, int threads, ParseStats stats, TripleSink sink) throws IOException {
+    threads = Math.max(threads, 1);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(ParallelTurtleParser.MIN_CHUNK_SIZE, size / (threads * 4L)));
+      List<long[]> chunks = split(channel, chunkSize);
+
+      if (threads == 1) {
+        // a single thread streams every triple to the sink, so that no triples are held in memory.
+        long line = 0;
+        for (long[] chunk : chunks) line = check(parseChunk(channel, chunk[0], chunk[1], stats != null, sink), line, stats);
+        sink.finish();
+        return;
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<>();
+        int next = 0;
+        long line = 0;
+        while (next < chunks.size() || !pending.isEmpty()) {
+          // keep a bounded number of chunks in flight so that memory use does not depend on the size of the file.
+          while (next < chunks.size() && pending.size() < threads * 2) {
+            long[] chunk = chunks.get(next++);
+            pending.add(pool.submit(() -> {
+              List<Triple> triples = new ArrayList<>();
+              ChunkResult result = parseChunk(channel, chunk[0], chunk[1], stats != null, triples::add);
+              return new ChunkResult(triples, result.lines(), result.error(), result.stats());
+            }));
+          }
+          ChunkResult result = await(pending.poll());
+          for (Triple triple : result.triples()) sink.accept(triple);
+          line = check(result, line, stats);
+        }
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+    sink.finish();
+  }
+
+  /**
+   * Adds the statistics of a parsed chunk and reports the error of the chunk, if there was one.
+   * @param result (ChunkResult) the parsed chunk.
+   * @param line (long) the number of line breaks before the chunk.
+   * @param stats (ParseStats) receives the statistics of the chunk, or null.
+   * @return (long) the number of line breaks before the next chunk.
+   * @throws IllegalArgumentException if a line of the chunk is not valid N-Triples.
+   */
+  private static long check(ChunkResult result, long line, ParseStats stats) {
+    if (stats != null) stats.add(result.stats());
+    if (result.error() != null)
+      throw new IllegalArgumentException(result.error() + " on line " + (line + result.lines() + 1) + ".");
+    return line + result.lines();
+  }
+
+  /**
+   * Splits a file into chunks that end just after a line break, or at the end of the file.
+   * @param channel (FileChannel) the file.
+   * @param chunkSize (long) the minimum size of a chunk.
+   * @return (List<long[]>) the start and end offset of every chunk.
+   * @throws IOException if the file cannot be read.
+   */
+  private static List<long[]> split(FileChannel channel, long chunkSize) throws IOException {
+    List<long[]> chunks = new ArrayList<>();
+    long size = channel.size();
+    ByteBuffer probe = ByteBuffer.allocate(8 << 10);
+    long start = 0;
+    while (start < size) {
+      long end = Math.min(size, start + chunkSize);
+      // move the end forward to just after the next line break.
+      while (end < size) {
+        probe.clear();
+        int read = channel.read(probe, end);
+        if (read <= 0) {
+          end = size;
+          break;
+        }
+        int i = 0;
+        while (i < read && probe.get(i) != '\n') i++;
+        end += i;
+        if (i < read) {
+          end++;
+          break;
+        }
+      }
+      chunks.add(new long[]{start, end});
+      start = end;
+    }
+    return chunks;
+  }
+
+  /**
+   * Parses the lines of a chunk.
+   * @param channel (FileChannel) the file.
+   * @param start (long) offset of the first byte of the chunk.
+   * @param end (long) offset after the last byte of the chunk.
+   * @param recordStats (boolean) true if statistics should be recorded for the chunk.
+   * @param sink (TripleSink) receives the triples of the chunk, up to the line with an error if there is one.
+   * @return (ChunkResult) the outcome of the chunk, without its triples.
+   * @throws IOException if the chunk cannot be mapped.
+   */
+  private static ChunkResult parseChunk(FileChannel channel, long start, long end, boolean recordStats, TripleSink sink)
+      throws IOException {
+    ParseStats stats = recordStats ? new ParseStats() : null;
+    if (stats != null) stats.start();
+    // the mapping is read-only and never reused, so the terms can be slices of it.
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    LineScanner scanner = new LineScanner(buffer, stats);
+    String error = null;
+    try {
+      scanner.scan(sink);
+    } catch (LineException err) {
+      error = err.getMessage();
+    }
+    if (stats != null) {
+      stats.lap(ParseStats.Phase.READ_DATA);
+      stats.addBytesRead(end - start);
+    }
+    return new ChunkResult(null, scanner.line, error, stats);
+  }
+
+  private static ChunkResult await(Future<ChunkResult> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while parsing.", err);
+    } catch (ExecutionException err) {
+      Throwable cause = err.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new UncheckedIOException(new IOException(cause));
+    }
+  }
+
+  /**
+   * Reads the triples of a chunk line by line, directly from the bytes of the mapping.
+   */
+  private static final class LineScanner {
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final ParseStats stats;
+    private int position = 0;
+    // the number of line breaks that have been passed.
+    private int line = 0;
+
+    // counts of the current line for the statistics.
+    private int urls;
+    private int literals;
+
+    LineScanner(ByteBuffer buffer, ParseStats stats) {
+      this.buffer = buffer;
+      this.limit = buffer.limit();
+      this.stats = stats;
+    }
+
+    void scan(TripleSink sink) {
+      while (position < limit) {
+        skipSpaces();
+        if (position == limit) break;
+        byte c = buffer.get(position);
+        if (c == '#' || c == '\r' || c == '\n') {
+          endLine();
+          continue;
+        }
+        urls = literals = 0;
+        Term subject = c == '_' ? blankNode() : iri();
+        skipSpaces();
+        Term predicate = iri();
+        skipSpaces();
+        Term object = object();
+        skipSpaces();
+        if (position == limit || buffer.get(position) != '.') throw unexpected();
+        position++;
+        skipSpaces();
+        endLine();
+        if (stats != null) {
+          stats.countStatement(urls, literals, 0, 0, 0, 1);
+          stats.lap(ParseStats.Phase.READ_DATA);
+        }
+        sink.accept(new Triple(subject, predicate, object));
+        if (stats != null) stats.lap(ParseStats.Phase.STORE);
+      }
+    }
+
+    /**
+     * Reads an IRI between angle brackets.
+     * @return (Term) the IRI without the brackets.
+     */
+    private Term iri() {
+      if (position == limit || buffer.get(position) != '<') throw unexpected();
+      int start = ++position;
+      while (position < limit) {
+        byte c = buffer.get(position);
+        if (c == '>') {
+          urls++;
+          return Term.iri(buffer, start, position++ - start);
+        }
+        if (c == '\n') break;
+        position++;
+      }
+      throw new LineException("Unterminated IRI");
+    }
+
+    /**
+     * Reads a blank node label, which is kept as it is, as the Turtle parser does.
+     * A '.' only belongs to the label if it is followed by another character of the label.
+     * @return (Term) the label including '_:'.
+     */
+    private Term blankNode() {
+      int start = position;
+      if (position + 1 >= limit || buffer.get(position + 1) != ':') throw unexpected();
+      position += 2;
+      while (position < limit) {
+        byte c = buffer.get(position);
+        if (c == '.') {
+          if (position + 1 == limit || endsLabel(buffer.get(position + 1))) break;
+        } else if (endsLabel(c)) break;
+        position++;
+      }
+      return Term.iri(buffer, start, position - start);
+    }
+
+    /**
+     * Reads an IRI, a blank node or a literal with its language tag or datatype.
+     * @return (Term) the object.
+     */
+    private Term object() {
+      if (position == limit) throw unexpected();
+      byte c = buffer.get(position);
+      if (c == '<') return iri();
+      if (c == '_') return blankNode();
+      if (c != '"') throw unexpected();
+      int start = ++position;
+      while (position < limit) {
+        c = buffer.get(position);
+        if (c == '"') break;
+        if (c == '\n') throw new LineException("Unterminated literal");
+        position += c == '\\' ? 2 : 1;
+      }
+      if (position >= limit) throw new LineException("Unterminated literal");
+      Term content = Term.literal(buffer, start, position - start);
+      position++;
+      literals++;
+
+      String suffix = "";
+      if (position < limit && buffer.get(position) == '@') {
+        int tagStart = position++;
+        while (position < limit && isLanguageCharacter(buffer.get(position))) position++;
+        suffix = ascii(tagStart, position);
+      } else if (position + 1 < limit && buffer.get(position) == '^' && buffer.get(position + 1) == '^') {
+        position += 2;
+        suffix = "^^" + iri();
+      }
+      return content.quoted(suffix);
+    }
+
+    /**
+     * Skips the rest of the line, which may only hold a comment, and the line break.
+     */
+    private void endLine() {
+      if (position < limit && buffer.get(position) == '#') {
+        while (position < limit && buffer.get(position) != '\n') position++;
+      }
+      if (position < limit && buffer.get(position) == '\r') position++;
+      if (position < limit) {
+        if (buffer.get(position) != '\n') throw unexpected();
+        position++;
+        line++;
+      }
+    }
+
+    private void skipSpaces() {
+      while (position < limit && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) position++;
+    }
+
+    private String ascii(int start, int end) {
+      byte[] bytes = new byte[end - start];
+      buffer.get(start, bytes);
+      return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private LineException unexpected() {
+      if (position >= limit) return new LineException("Unexpected end of data");
+      byte c = buffer.get(position);
+      String text = c == '\n' || c == '\r' ? "end of line" : c < 0 ? "byte 0x" + Integer.toHexString(c & 0xFF) : "'" + (char) c + "'";
+      return new LineException("Unexpected " + text);
+    }
+
+    private static boolean endsLabel(byte c) {
+      return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '<' || c == '"' || c == '#';
+    }
+
+    private static boolean isLanguageCharacter(byte c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+    }
+  }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes triples in N-Triples format, one triple per line with every IRI written out in full.
+ * Blank node and collection IDs, and names that are not absolute URLs, are given the base URL as their prefix.
+ * Literals are decoded, so the quotes, backslashes and line breaks in them are escaped again.
+ */
+public class NTriplesWriter extends TripleWriter {
+
+  private static final byte[] TRIPLE_END = " .\n".getBytes(StandardCharsets.UTF_8);
+
+  protected final String base;
+
+  /**
+   * Creates an N-Triples writer.
+   * @param out (OutputStream) the destination of the triples.
+   * @param base (String) the URL that is put in front of blank node IDs, collection IDs and relative names.
+   */
+  public NTriplesWriter(OutputStream out, String base) {
+    super(out);
+    this.base = base;
+  }
+
+  @Override
+  protected void writeTriple(String subject, String predicate, String object) throws IOException {
+    writeSubject(subject);
+    write(' ');
+    writePredicate(predicate);
+    write(' ');
+    writeObject(object);
+    write(TRIPLE_END);
+  }
+
+  /**
+   * Writes a subject, which is always an IRI.
+   * @param subject (String) the subject.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writeSubject(String subject) throws IOException {
+    if (subject.startsWith("http")) writeIRI(null, subject);
+    else writeIRI(base, subject);
+  }
+
+  /**
+   * Writes a predicate, which is always an IRI.
+   * @param predicate (String) the predicate.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writePredicate(String predicate) throws IOException {
+    if (predicate.startsWith("element_")) writeIRI(base, predicate);
+    else writeIRI(null, predicate);
+  }
+
+  /**
+   * Writes an object, which is either an IRI or a literal. Values that are neither quoted nor URLs are written as plain literals.
+   * @param object (String) the object.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writeObject(String object) throws IOException {
+    if (object.startsWith("blank_node_") || object.startsWith("collection_")) {
+      writeIRI(base, object);
+    } else if (object.startsWith("\"")) {
+      // the language tag and datatype never contain a quote, so the last quote closes the content.
+      int literalEnd = object.lastIndexOf('"');
+      write('"');
+      writeEscaped(object, 1, literalEnd);
+      write('"');
+      if (object.startsWith("^^", literalEnd + 1)) {
+        write("^^");
+        writeDatatype(object, literalEnd + 3);
+      } else {
+        write(object, literalEnd + 1, object.length());
+      }
+    } else if (!object.startsWith("http")) {
+      write('"');
+      writeEscaped(object, 0, object.length());
+      write('"');
+    } else {
+      writeIRI(null, object);
+    }
+  }
+
+  /**
+   * Writes the datatype at the end of a typed literal.
+   * @param literal (String) the typed literal.
+   * @param start (int) index of the first character of the datatype IRI.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writeDatatype(String literal, int start) throws IOException {
+    write('<');
+    write(literal, start, literal.length());
+    write('>');
+  }
+
+  /**
+   * Writes an IRI between angle brackets.
+   * @param prefix (String) a URL to put in front of the name, or null if the name is already a full IRI.
+   * @param name (String) the IRI or the name relative to the prefix.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writeIRI(String prefix, String name) throws IOException {
+    write('<');
+    if (prefix != null) write(prefix);
+    write(name);
+    write('>');
+  }
+
+  /**
+   * Writes the content of a literal, escaping the quotes, backslashes and line breaks in it.
+   * @param text (String) the decoded text.
+   * @param from (int) index of the first character to write.
+   * @param to (int) index after the last character to write.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writeEscaped(String text, int from, int to) throws IOException {
+    int start = from;
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      // none of the characters to escape comes after the backslash.
+      if (c > '\\' || (c != '"' && c != '\\' && c != '\n' && c != '\r')) continue;
+      String escape = c == '"' ? "\\\"" : c == '\\' ? "\\\\" : c == '\n' ? "\\n" : "\\r";
+      write(text, start, i);
+      write(escape);
+      start = i + 1;
+    }
+    write(text, start, to);
+  }
+
+}
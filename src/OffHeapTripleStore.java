@@ -0,0 +1,436 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores triples and their terms outside of the Java heap, for inputs that are too large to keep as Strings.
+ * It works like a {@link TripleStore} with its own {@link TermDictionary}, but the UTF-8 bytes of the terms, the hash
+ * table of the dictionary and the ID columns of the triples are all kept in chunks of native memory. The heap only holds
+ * one small object per chunk, so the heap size and the garbage collection pauses do not grow with the data.
+ *
+ * The chunks are handed out by the store and all of them are released when the store is closed. Once the chunks in native
+ * memory reach the memory budget, further chunks are mapped from a temporary file, which the operating system pages in
+ * and out as needed, and which is deleted when the store is closed.
+ *
+ * A store is filled by passing it to a streaming parse:
+ * <pre>
+ * try (OffHeapTripleStore store = new OffHeapTripleStore(1L &lt;&lt; 30)) {
+ *   TurtleParser.parse(fileName, store);
+ *   for (String[] triple : store.asList()) ...
+ * }
+ * </pre>
+ */
+public class OffHeapTripleStore implements TripleSink, Closeable {
+
+  // every chunk has the same size, so that released chunks can be reused for anything.
+  private static final int CHUNK_SHIFT = 20;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private static final int TRIPLE_BYTES = 12;
+
+  private final Path spillDirectory;
+  private final long memoryBudget;
+  private long bytesInMemory = 0;
+  private long bytesSpilled = 0;
+  private Path spillFile = null;
+  private FileChannel spillChannel = null;
+  private final ArrayDeque<ByteBuffer> freeChunks = new ArrayDeque<>();
+  private boolean closed = false;
+
+  // the terms: the address of every term in termBytes, the hash of every term and the hash table of term IDs.
+  private final Memory termAddresses = new Memory();
+  private final Memory termHashes = new Memory();
+  // every term is stored as its length followed by its UTF-8 bytes, padded to a multiple of 4 bytes.
+  private final Memory termBytes = new Memory();
+  // slots contain the ID of a term plus 1, or 0 if they are empty. The capacity is always a power of 2.
+  private Memory slots = new Memory();
+  private int slotCapacity = 1 << 12;
+  private long termBytesUsed = 0;
+  private int termCount = 0;
+
+  // the subject, predicate and object IDs of every triple.
+  private final Memory triples = new Memory();
+  private int size = 0;
+
+  /**
+   * Creates a store without a memory budget, which never spills to a file.
+   */
+  public OffHeapTripleStore() {
+    this(Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a store that spills to a temporary file in the default temporary directory.
+   * @param memoryBudget (long) the number of bytes of native memory to use before spilling.
+   */
+  public OffHeapTripleStore(long memoryBudget) {
+    this(memoryBudget, Paths.get(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   * Creates a store.
+   * @param memoryBudget (long) the number of bytes of native memory to use before spilling.
+   * @param spillDirectory (Path) the directory of the temporary file that is used once the budget is exhausted.
+   */
+  public OffHeapTripleStore(long memoryBudget, Path spillDirectory) {
+    this.memoryBudget = memoryBudget;
+    this.spillDirectory = spillDirectory;
+    slots.ensure(4L * slotCapacity);
+  }
+
+  /**
+   * Adds a triple, encoding its terms with the dictionary of the store.
+   * @param triple (Triple) the triple to add.
+   */
+  @Override
+  public void accept(Triple triple) {
+    add(encode(triple.subject()), encode(triple.predicate()), encode(triple.object()));
+  }
+
+  /**
+   * Adds a triple of term IDs.
+   * @param subject (int) ID of the subject.
+   * @param predicate (int) ID of the predicate.
+   * @param object (int) ID of the object.
+   */
+  public void add(int subject, int predicate, int object) {
+    if (size == Integer.MAX_VALUE) throw new IllegalStateException("The store is full.");
+    long address = (long) size * TRIPLE_BYTES;
+    triples.ensure(address + TRIPLE_BYTES);
+    triples.putInt(address, subject);
+    triples.putInt(address + 4, predicate);
+    triples.putInt(address + 8, object);
+    size++;
+  }
+
+  /**
+   * Returns the ID of a term, adding the term to the store if it has not been seen before.
+   * @param term (String) the term to encode.
+   * @return (int) the ID of the term.
+   */
+  public int encode(String term) {
+    byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(bytes);
+    int slot = find(bytes, hash);
+    int id = slots.getInt(4L * slot) - 1;
+    if (id >= 0) return id;
+
+    if (termCount == Integer.MAX_VALUE) throw new IllegalStateException("The store is full.");
+    id = termCount++;
+    long length = 4 + ((bytes.length + 3) & ~3L);
+    termBytes.ensure(termBytesUsed + length);
+    termBytes.putInt(termBytesUsed, bytes.length);
+    termBytes.put(termBytesUsed + 4, bytes);
+    termAddresses.ensure(8L * termCount);
+    termAddresses.putLong(8L * id, termBytesUsed);
+    termHashes.ensure(4L * termCount);
+    termHashes.putInt(4L * id, hash);
+    termBytesUsed += length;
+
+    slots.putInt(4L * slot, id + 1);
+    if (termCount * 2L > slotCapacity) rehash(slotCapacity * 2);
+    return id;
+  }
+
+  /**
+   * Returns the ID of a term without adding it to the store.
+   * @param term (String) the term to look up.
+   * @return (int) the ID of the term, or -1 if the term is not in the store.
+   */
+  public int lookup(String term) {
+    byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+    return slots.getInt(4L * find(bytes, hash(bytes))) - 1;
+  }
+
+  /**
+   * Returns the term belonging to an ID.
+   * @param id (int) an ID returned by {@link #encode(String)}.
+   * @return (String) the term.
+   */
+  public String decode(int id) {
+    if (id < 0 || id >= termCount) throw new IndexOutOfBoundsException("Unknown term ID " + id + ".");
+    long address = termAddresses.getLong(8L * id);
+    byte[] bytes = new byte[termBytes.getInt(address)];
+    termBytes.get(address + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the number of triples in the store.
+   * @return (int) the number of triples.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of distinct terms.
+   * @return (int) the number of terms in the store.
+   */
+  public int getTermCount() {
+    return termCount;
+  }
+
+  /**
+   * Returns the ID of the subject of a triple.
+   * @param index (int) the position of the triple.
+   * @return (int) the term ID.
+   */
+  public int getSubject(int index) {
+    checkIndex(index);
+    return triples.getInt((long) index * TRIPLE_BYTES);
+  }
+
+  /**
+   * Returns the ID of the predicate of a triple.
+   * @param index (int) the position of the triple.
+   * @return (int) the term ID.
+   */
+  public int getPredicate(int index) {
+    checkIndex(index);
+    return triples.getInt((long) index * TRIPLE_BYTES + 4);
+  }
+
+  /**
+   * Returns the ID of the object of a triple.
+   * @param index (int) the position of the triple.
+   * @return (int) the term ID.
+   */
+  public int getObject(int index) {
+    checkIndex(index);
+    return triples.getInt((long) index * TRIPLE_BYTES + 8);
+  }
+
+  /**
+   * Returns a triple with its terms decoded.
+   * @param index (int) the position of the triple.
+   * @return (String[]) the subject, predicate and object.
+   */
+  public String[] get(int index) {
+    return new String[]{decode(getSubject(index)), decode(getPredicate(index)), decode(getObject(index))};
+  }
+
+  /**
+   * Returns a read-only view of the triples, like {@link TripleStore#asList()}.
+   * The triples are decoded when they are accessed, and the view must not be used after the store is closed.
+   * @return (List<String[]>) the triples as string arrays of length 3.
+   */
+  public List<String[]> asList() {
+    return new AbstractList<>() {
+      @Override
+      public String[] get(int index) {
+        return OffHeapTripleStore.this.get(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Returns the number of bytes of native memory in use.
+   * @return (long) the size of the chunks that are kept in memory.
+   */
+  public long getBytesInMemory() {
+    return bytesInMemory;
+  }
+
+  /**
+   * Returns the number of bytes that were spilled to the temporary file.
+   * @return (long) the size of the chunks that are mapped from the file.
+   */
+  public long getBytesSpilled() {
+    return bytesSpilled;
+  }
+
+  /**
+   * Releases all chunks and deletes the temporary file.
+   * The native memory is returned once the chunks have been garbage collected, which happens without a full collection
+   * because the heap only holds a small object per chunk.
+   * @throws IOException if the temporary file cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) return;
+    closed = true;
+    termAddresses.clear();
+    termHashes.clear();
+    termBytes.clear();
+    slots.clear();
+    triples.clear();
+    freeChunks.clear();
+    size = termCount = 0;
+    if (spillChannel != null) {
+      spillChannel.close();
+      Files.deleteIfExists(spillFile);
+    }
+  }
+
+  /**
+   * Finds the slot of a term in the hash table.
+   * @param bytes (byte[]) the UTF-8 bytes of the term.
+   * @param hash (int) the hash of the bytes.
+   * @return (int) the slot that contains the term, or the empty slot where it should be added.
+   */
+  private int find(byte[] bytes, int hash) {
+    int mask = slotCapacity - 1;
+    int slot = hash & mask;
+    for (int id = slots.getInt(4L * slot) - 1; id >= 0; id = slots.getInt(4L * slot) - 1) {
+      if (termHashes.getInt(4L * id) == hash && termBytes.equals(termAddresses.getLong(8L * id), bytes)) return slot;
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void rehash(int capacity) {
+    Memory old = slots;
+    slots = new Memory();
+    slots.ensure(4L * capacity);
+    slotCapacity = capacity;
+    int mask = capacity - 1;
+    for (int id = 0; id < termCount; id++) {
+      int slot = termHashes.getInt(4L * id) & mask;
+      while (slots.getInt(4L * slot) != 0) slot = (slot + 1) & mask;
+      slots.putInt(4L * slot, id + 1);
+    }
+    old.clear();
+  }
+
+  private static int hash(byte[] bytes) {
+    int hash = Arrays.hashCode(bytes);
+    return hash ^ (hash >>> 16);
+  }
+
+  private void checkIndex(int index) {
+    if (closed) throw new IllegalStateException("The store is closed.");
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size + ".");
+  }
+
+  /**
+   * Hands out a zeroed chunk, from memory while the budget allows it and from the temporary file after that.
+   * @return (ByteBuffer) a chunk of CHUNK_SIZE bytes in native byte order.
+   */
+  private ByteBuffer allocateChunk() {
+    if (closed) throw new IllegalStateException("The store is closed.");
+    ByteBuffer chunk = freeChunks.poll();
+    if (chunk != null) {
+      for (int i = 0; i < CHUNK_SIZE; i += 8) chunk.putLong(i, 0);
+      return chunk;
+    }
+    if (bytesInMemory + CHUNK_SIZE <= memoryBudget) {
+      bytesInMemory += CHUNK_SIZE;
+      return ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.nativeOrder());
+    }
+    try {
+      if (spillChannel == null) {
+        spillFile = Files.createTempFile(spillDirectory, "triples", ".spill");
+        spillFile.toFile().deleteOnExit();
+        spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }
+      // a newly mapped region of the file reads as zeros.
+      chunk = spillChannel.map(FileChannel.MapMode.READ_WRITE, bytesSpilled, CHUNK_SIZE).order(ByteOrder.nativeOrder());
+      bytesSpilled += CHUNK_SIZE;
+      return chunk;
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * A growable range of bytes made of chunks, addressed with a long.
+   * Ints and longs must be aligned to their size, so that they never cross the end of a chunk.
+   */
+  private final class Memory {
+    private ByteBuffer[] chunks = new ByteBuffer[8];
+    private int count = 0;
+
+    /**
+     * Adds chunks until the memory is at least a number of bytes long.
+     * @param bytes (long) the required length.
+     */
+    void ensure(long bytes) {
+      while ((long) count << CHUNK_SHIFT < bytes) {
+        if (count == chunks.length) chunks = Arrays.copyOf(chunks, count * 2);
+        chunks[count++] = allocateChunk();
+      }
+    }
+
+    int getInt(long address) {
+      return chunks[(int) (address >>> CHUNK_SHIFT)].getInt((int) address & CHUNK_MASK);
+    }
+
+    void putInt(long address, int value) {
+      chunks[(int) (address >>> CHUNK_SHIFT)].putInt((int) address & CHUNK_MASK, value);
+    }
+
+    long getLong(long address) {
+      return chunks[(int) (address >>> CHUNK_SHIFT)].getLong((int) address & CHUNK_MASK);
+    }
+
+    void putLong(long address, long value) {
+      chunks[(int) (address >>> CHUNK_SHIFT)].putLong((int) address & CHUNK_MASK, value);
+    }
+
+    void put(long address, byte[] bytes) {
+      for (int done = 0; done < bytes.length; ) {
+        int offset = (int) (address + done) & CHUNK_MASK;
+        int length = Math.min(bytes.length - done, CHUNK_SIZE - offset);
+        chunks[(int) ((address + done) >>> CHUNK_SHIFT)].put(offset, bytes, done, length);
+        done += length;
+      }
+    }
+
+    void get(long address, byte[] bytes) {
+      for (int done = 0; done < bytes.length; ) {
+        int offset = (int) (address + done) & CHUNK_MASK;
+        int length = Math.min(bytes.length - done, CHUNK_SIZE - offset);
+        chunks[(int) ((address + done) >>> CHUNK_SHIFT)].get(offset, bytes, done, length);
+        done += length;
+      }
+    }
+
+    /**
+     * Compares the term stored at an address with the bytes of another term.
+     * @param address (long) the address of the length of the stored term.
+     * @param bytes (byte[]) the bytes of the other term.
+     * @return (boolean) true if the terms are equal.
+     */
+    boolean equals(long address, byte[] bytes) {
+      if (getInt(address) != bytes.length) return false;
+      for (int done = 0; done < bytes.length; ) {
+        long position = address + 4 + done;
+        ByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+        int offset = (int) position & CHUNK_MASK;
+        int length = Math.min(bytes.length - done, CHUNK_SIZE - offset);
+        for (int i = 0; i < length; i++)
+          if (chunk.get(offset + i) != bytes[done + i]) return false;
+        done += length;
+      }
+      return true;
+    }
+
+    /**
+     * Returns all chunks to the store for reuse.
+     */
+    void clear() {
+      for (int i = 0; i < count; i++) if (!closed) freeChunks.push(chunks[i]);
+      Arrays.fill(chunks, 0, count, null);
+      count = 0;
+    }
+  }
+}
@@ -0,0 +1,211 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a turtle file on multiple threads.
+ * The file is split into chunks at the ends of top-level statements by a {@link StatementSplitter}, and every chunk is parsed
+ * by its own {@link TurtleParser} on a fork-join pool. Each chunk parser is first given the @prefix and @base directives that
+ * appear before its chunk, so prefixes resolve exactly as they do in a single pass.
+ * Blank node and collection IDs are numbered from 0 within each chunk and shifted by the number of IDs used in the chunks
+ * before it when the results are merged, so the output does not depend on the number of threads. Only the labels are
+ * looked at while merging: they are created from text, so the IRIs and literals that were read from the file are passed on
+ * without being decoded, and the merge on the calling thread stays cheap next to the parsing of the chunks.
+ */
+class ParallelTurtleParser {
+
+  // chunks are never smaller than this, so that small files are not split needlessly.
+  static final long MIN_CHUNK_SIZE = 1L << 20;
+
+  private static final String BLANK_NODE_LABEL = "blank_node_(id=";
+  private static final String COLLECTION_LABEL = "collection_(id=";
+
+  private ParallelTurtleParser() {
+  }
+
+  /**
+   * The triples of a parsed chunk, with IDs numbered from 0.
+   */
+  private record ChunkResult(List<Triple> triples, int blankNodes, int collections, ParseStats stats) {
+  }
+
+  /**
+   * Parses a file and passes its triples to a sink in the order they appear in the file.
+   * @param path (Path) the turtle file.
+   * @param threads (int) the number of threads to parse with.
+   * @param target (TurtleParser) receives every directive of the file, so that its prefixes can be used for output afterwards,
+   *               and the statistics of all chunks if it records statistics.
+   * @param sink (TripleSink) receives the triples.
+   * @throws IOException if the file cannot be read.
+   * @throws IllegalArgumentException if the number of threads is less than 1.
+   */
+  static void parse(Path path, int threads, TurtleParser target, TripleSink sink) throws IOException {
+    if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1.");
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long chunkSize = Math.max(MIN_CHUNK_SIZE, size / (threads * 4L));
+
+      List<long[]> chunks = new ArrayList<>();
+      List<Integer> preambleLengths = new ArrayList<>();
+      ByteArrayOutputStream directives = new ByteArrayOutputStream();
+      split(channel, chunkSize, chunks, preambleLengths, directives);
+      byte[] preamble = directives.toByteArray();
+
+      ParseStats stats = target.getParseStats();
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<>();
+        int next = 0;
+        int blankOffset = 0;
+        int collectionOffset = 0;
+        while (next < chunks.size() || !pending.isEmpty()) {
+          // keep a bounded number of chunks in flight so that memory use does not depend on the size of the file.
+          while (next < chunks.size() && pending.size() < threads * 2) {
+            long[] chunk = chunks.get(next);
+            int preambleLength = preambleLengths.get(next);
+            pending.add(pool.submit(() -> parseChunk(channel, chunk[0], chunk[1], preamble, preambleLength, stats != null)));
+            next++;
+          }
+          ChunkResult result = await(pending.poll());
+          for (Triple triple : result.triples()) sink.accept(shift(triple, blankOffset, collectionOffset));
+          blankOffset += result.blankNodes();
+          collectionOffset += result.collections();
+          if (stats != null) stats.add(result.stats());
+        }
+      } finally {
+        pool.shutdown();
+      }
+
+      // the directives have already been counted in the statistics of their chunks.
+      target.setParseStats(null);
+      target.process(TurtleInput.of(ByteBuffer.wrap(preamble)), triple -> { });
+      target.setParseStats(stats);
+      sink.finish();
+    }
+  }
+
+  /**
+   * Splits the file into chunks that end at the end of a top-level statement.
+   * @param channel (FileChannel) the turtle file.
+   * @param chunkSize (long) the minimum size of a chunk.
+   * @param chunks (List<long[]>) receives the start and end offset of every chunk.
+   * @param preambleLengths (List<Integer>) receives, for every chunk, the number of directive bytes before the chunk.
+   * @param directives (ByteArrayOutputStream) receives the text of every directive in the file.
+   * @throws IOException if the file cannot be read.
+   */
+  private static void split(FileChannel channel, long chunkSize, List<long[]> chunks, List<Integer> preambleLengths,
+                            ByteArrayOutputStream directives) throws IOException {
+    StatementSplitter splitter = new StatementSplitter();
+    long chunkStart = 0;
+    int chunkPreamble = 0;
+    try (TurtleInput input = TurtleInput.open(channel, 0, channel.size())) {
+      ByteBuffer window = input.buffer();
+      while (true) {
+        long end = splitter.scan(window);
+        if (end < 0) {
+          if (!input.refill(window.limit())) break;
+          window = input.buffer();
+          continue;
+        }
+        if (splitter.isDirective()) copy(channel, splitter.getStatementStart(), end, directives);
+        if (end - chunkStart >= chunkSize) {
+          chunks.add(new long[]{chunkStart, end});
+          preambleLengths.add(chunkPreamble);
+          chunkStart = end;
+          chunkPreamble = directives.size();
+        }
+      }
+      long end = splitter.finish();
+      if (end >= 0 && splitter.isDirective()) copy(channel, splitter.getStatementStart(), end, directives);
+    }
+    if (chunkStart < channel.size()) {
+      chunks.add(new long[]{chunkStart, channel.size()});
+      preambleLengths.add(chunkPreamble);
+    }
+  }
+
+  /**
+   * Parses a single chunk.
+   * @param channel (FileChannel) the turtle file.
+   * @param start (long) offset of the first byte of the chunk.
+   * @param end (long) offset after the last byte of the chunk.
+   * @param preamble (byte[]) the directives of the file.
+   * @param preambleLength (int) the number of directive bytes that appear before the chunk.
+   * @param recordStats (boolean) true if statistics should be recorded for the chunk, not counting the preamble.
+   * @return (ChunkResult) the triples of the chunk.
+   * @throws IOException if the file cannot be read.
+   */
+  private static ChunkResult parseChunk(FileChannel channel, long start, long end, byte[] preamble, int preambleLength,
+                                        boolean recordStats) throws IOException {
+    TurtleParser parser = new TurtleParser();
+    parser.process(TurtleInput.of(ByteBuffer.wrap(preamble, 0, preambleLength)), triple -> { });
+    ParseStats stats = recordStats ? new ParseStats() : null;
+    parser.setParseStats(stats);
+    List<Triple> triples = new ArrayList<>();
+    parser.process(TurtleInput.open(channel, start, end), triples::add);
+    return new ChunkResult(triples, parser.getBlankNodeCount(), parser.getCollectionCount(), stats);
+  }
+
+  private static void copy(FileChannel channel, long start, long end, ByteArrayOutputStream out) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+    while (bytes.hasRemaining()) {
+      if (channel.read(bytes, start + bytes.position()) < 0) break;
+    }
+    out.write(bytes.array(), 0, bytes.position());
+    out.write('\n');
+  }
+
+  private static ChunkResult await(Future<ChunkResult> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while parsing.", err);
+    } catch (ExecutionException err) {
+      Throwable cause = err.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new UncheckedIOException(new IOException(cause));
+    }
+  }
+
+  /**
+   * Shifts the blank node and collection IDs of a triple from the numbering of its chunk to the numbering of the file.
+   */
+  private static Triple shift(Triple triple, int blankOffset, int collectionOffset) {
+    if (blankOffset == 0 && collectionOffset == 0) return triple;
+    Term subject = shift(triple.subjectTerm(), blankOffset, collectionOffset);
+    Term object = shift(triple.objectTerm(), blankOffset, collectionOffset);
+    if (subject == triple.subjectTerm() && object == triple.objectTerm()) return triple;
+    return new Triple(subject, triple.predicateTerm(), object);
+  }
+
+  /**
+   * Shifts the ID of a blank node or collection label, without decoding a term that was read from the file.
+   */
+  private static Term shift(Term term, int blankOffset, int collectionOffset) {
+    String text = term.plainText();
+    if (text == null) return term;
+    if (text.startsWith(BLANK_NODE_LABEL)) return relabel(term, BLANK_NODE_LABEL, blankOffset);
+    if (text.startsWith(COLLECTION_LABEL)) return relabel(term, COLLECTION_LABEL, collectionOffset);
+    return term;
+  }
+
+  private static Term relabel(Term term, String label, int offset) {
+    if (offset == 0) return term;
+    String text = term.plainText();
+    int id = Integer.parseInt(text, label.length(), text.length() - 1, 10);
+    return Term.of(label + (id + offset) + ")");
+  }
+}
@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Keeps parsed turtle files in memory so that loading the same file again does not parse it again.
+ * The parses are keyed by the SHA-256 hash of the file content, so a copy of a file under another name is a hit and a
+ * changed file is parsed again. The hash of a file is remembered by its path, size and modification time, so a repeated
+ * load of an unchanged file costs a lookup of its attributes and no reading.
+ *
+ * The estimated memory of the cached parses is kept under a budget by evicting the least recently used parses.
+ * The cache can be used from many threads at once: threads that request the same content at the same time wait for a
+ * single parse. The cached {@link TurtleParser} instances are shared, so they are made read-only: their triple store,
+ * dictionary and prefix map throw an UnsupportedOperationException when they are changed.
+ */
+public class ParseCache {
+
+  // the number of file attributes whose hash is remembered.
+  private static final int MAX_FILES = 4096;
+
+  /**
+   * A parse that is in the cache, or that is still running.
+   */
+  private static final class Entry {
+    private final CompletableFuture<TurtleParser> parser = new CompletableFuture<>();
+    // the estimated memory of the parse, 0 until it has finished.
+    private long bytes = 0;
+  }
+
+  private final long byteBudget;
+  private long bytes = 0;
+
+  // content hash to parse, in the order of the least recently used first.
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // path, size and modification time to content hash.
+  private final LinkedHashMap<String, String> hashes = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+      return size() > MAX_FILES;
+    }
+  };
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Creates an empty cache.
+   * @param byteBudget (long) the estimated number of bytes that the cached parses may take up together.
+   */
+  public ParseCache(long byteBudget) {
+    this.byteBudget = byteBudget;
+  }
+
+  /**
+   * Returns the parse of a turtle file, parsing it only if the same content is not in the cache.
+   * @param fileName name of the file containing the turtle data.
+   * @return (TurtleParser) the parsed data, which is shared with other users of the cache and is read-only.
+   * @throws IOException if the file cannot be read.
+   */
+  public TurtleParser get(String fileName) throws IOException {
+    return get(Paths.get(fileName));
+  }
+
+  /**
+   * Returns the parse of a turtle file, parsing it only if the same content is not in the cache.
+   * @param path (Path) the file containing the turtle data.
+   * @return (TurtleParser) the parsed data, which is shared with other users of the cache and is read-only.
+   * @throws IOException if the file cannot be read.
+   */
+  public TurtleParser get(Path path) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    String file = path.toAbsolutePath().normalize() + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+    String hash;
+    synchronized (this) {
+      hash = hashes.get(file);
+    }
+    if (hash == null) {
+      hash = hash(path);
+      synchronized (this) {
+        hashes.put(file, hash);
+      }
+    }
+
+    Entry entry;
+    boolean load = false;
+    synchronized (this) {
+      entry = entries.get(hash);
+      if (entry != null) hits++;
+      else {
+        misses++;
+        entry = new Entry();
+        entries.put(hash, entry);
+        load = true;
+      }
+    }
+    if (load) load(hash, entry, path);
+
+    try {
+      return entry.parser.join();
+    } catch (CompletionException err) {
+      if (err.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) err.getCause()).getCause();
+      if (err.getCause() instanceof RuntimeException) throw (RuntimeException) err.getCause();
+      if (err.getCause() instanceof Error) throw (Error) err.getCause();
+      throw err;
+    }
+  }
+
+  /**
+   * Parses a file for an entry that has just been added, and evicts the least recently used entries that no longer fit.
+   * If the parse fails, even with an Error such as an OutOfMemoryError, the entry is removed and completed with the failure,
+   * so that the threads waiting for it do not wait forever and a later request parses the file again.
+   * @param hash (String) the content hash of the file.
+   * @param entry (Entry) the entry.
+   * @param path (Path) the file.
+   */
+  private void load(String hash, Entry entry, Path path) {
+    TurtleParser parser;
+    try {
+      parser = new TurtleParser(path.toString());
+      parser.makeReadOnly();
+    } catch (Throwable err) {
+      synchronized (this) {
+        entries.remove(hash, entry);
+      }
+      entry.parser.completeExceptionally(err);
+      return;
+    }
+    long estimate = estimateBytes(parser);
+    synchronized (this) {
+      // the entry is not accounted for if the cache was cleared during the parse.
+      if (entries.get(hash) == entry) {
+        entry.bytes = estimate;
+        bytes += estimate;
+      }
+      Iterator<Entry> eldest = entries.values().iterator();
+      while (bytes > byteBudget && eldest.hasNext()) {
+        Entry evicted = eldest.next();
+        // parses that are still running have no size yet and cannot be evicted.
+        if (evicted.bytes == 0) continue;
+        eldest.remove();
+        bytes -= evicted.bytes;
+        evictions++;
+      }
+    }
+    entry.parser.complete(parser);
+  }
+
+  /**
+   * Estimates the memory taken up by a parse: the triple columns, the strings of the terms and the dictionary.
+   * @param parser (TurtleParser) the parse.
+   * @return (long) the estimated number of bytes.
+   */
+  private static long estimateBytes(TurtleParser parser) {
+    TripleStore store = parser.getTripleStore();
+    TermDictionary dictionary = store.getDictionary();
+    // 12 bytes of IDs per triple; per term a String with its array, a hash and two hash slots.
+    long estimate = 12L * store.size() + 1024;
+    for (int id = 0; id < dictionary.size(); id++) estimate += 64 + 12 + dictionary.decode(id).length();
+    return estimate;
+  }
+
+  /**
+   * Computes the SHA-256 hash of the content of a file.
+   * @param path (Path) the file.
+   * @return (String) the hash in hexadecimal.
+   * @throws IOException if the file cannot be read.
+   */
+  private static String hash(Path path) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException err) {
+      throw new IllegalStateException(err);
+    }
+    byte[] buffer = new byte[TurtleInput.BUFFER_SIZE];
+    try (InputStream in = Files.newInputStream(path)) {
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) digest.update(buffer, 0, read);
+    }
+    StringBuilder hex = new StringBuilder(64);
+    for (byte b : digest.digest()) hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    return hex.toString();
+  }
+
+  /**
+   * Returns the number of requests that found their content in the cache, including those that waited for a running parse.
+   * @return (long) the number of hits.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of requests that had to parse their file.
+   * @return (long) the number of misses.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of parses that were removed to stay within the budget.
+   * @return (long) the number of evictions.
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Returns the number of parses in the cache.
+   * @return (int) the number of entries.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the estimated memory of the cached parses.
+   * @return (long) the estimated number of bytes.
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Removes all parses from the cache. Parses that are still running are completed for the threads waiting for them.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    hashes.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Returns a summary of the statistics.
+   * @return (String) the hits, misses, evictions and size of the cache.
+   */
+  @Override
+  public synchronized String toString() {
+    return String.format("ParseCache: %d hits, %d misses, %d evictions, %d entries, %d of %d bytes", hits, misses, evictions,
+        entries.size(), bytes, byteBudget);
+  }
+}
@@ -0,0 +1,173 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Sends requests to a {@link ParseServer} and copies the converted triples to a stream as they arrive.
+ * If the server fails while parsing, the output up to the error has already been copied when the exception is thrown.
+ */
+public class ParseClient {
+
+  private ParseClient() {
+  }
+
+  /**
+   * Asks the server to parse a file.
+   * @param address (SocketAddress) the address of the server, see {@link ParseServer#address(String)}.
+   * @param format (BatchConverter.Format) the format of the output.
+   * @param file (Path) the turtle file, which the server opens itself.
+   * @param out (OutputStream) receives the converted triples.
+   * @return (long) the number of triples.
+   * @throws IOException if the server cannot be reached or cannot parse the file, with the message of the server.
+   */
+  public static long parse(SocketAddress address, BatchConverter.Format format, Path file, OutputStream out) throws IOException {
+    return request(address, "PARSE " + name(format) + " " + file.toAbsolutePath() + "\n", null, 0, out);
+  }
+
+  /**
+   * Asks the server to parse turtle data that is sent with the request.
+   * @param address (SocketAddress) the address of the server, see {@link ParseServer#address(String)}.
+   * @param format (BatchConverter.Format) the format of the output.
+   * @param body (byte[]) the turtle data.
+   * @param out (OutputStream) receives the converted triples.
+   * @return (long) the number of triples.
+   * @throws IOException if the server cannot be reached or cannot parse the data, with the message of the server.
+   */
+  public static long parse(SocketAddress address, BatchConverter.Format format, byte[] body, OutputStream out) throws IOException {
+    return parse(address, format, new ByteArrayInputStream(body), body.length, out);
+  }
+
+  /**
+   * Asks the server to parse turtle data that is read from a stream while the output arrives, so that neither is held in
+   * memory as a whole. Data of unknown length is sent in frames, see {@link ParseServer}.
+   * @param address (SocketAddress) the address of the server, see {@link ParseServer#address(String)}.
+   * @param format (BatchConverter.Format) the format of the output.
+   * @param body (InputStream) the turtle data, which is read up to the length or to its end.
+   * @param length (long) the number of bytes of the data, or -1 if it is not known.
+   * @param out (OutputStream) receives the converted triples.
+   * @return (long) the number of triples.
+   * @throws IOException if the server cannot be reached or cannot parse the data, with the message of the server, or if the
+   *                     data cannot be read.
+   */
+  public static long parse(SocketAddress address, BatchConverter.Format format, InputStream body, long length, OutputStream out)
+      throws IOException {
+    String size = length < 0 ? ParseServer.CHUNKED : Long.toString(length);
+    return request(address, "BODY " + name(format) + " " + size + "\n", body, length, out);
+  }
+
+  private static long request(SocketAddress address, String line, InputStream body, long length, OutputStream out)
+      throws IOException {
+    try (SocketChannel channel = SocketChannel.open(address)) {
+      // the server sends output while a body is still arriving, so a body is sent on its own thread while the output is read.
+      Sender sender = new Sender(channel, line, body, length);
+      Thread thread = new Thread(sender);
+      thread.setDaemon(true);
+      if (body == null) sender.run();
+      else thread.start();
+      InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+      byte[] buffer = new byte[8192];
+      while (true) {
+        String response = ParseServer.readLine(in);
+        if (response.startsWith("DATA ")) {
+          for (int remaining = Integer.parseInt(response.substring(5)); remaining > 0; ) {
+            int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (read < 0) throw new IOException("The response ended in the middle of a frame.");
+            out.write(buffer, 0, read);
+            remaining -= read;
+          }
+          continue;
+        }
+        out.flush();
+        if (thread.isAlive()) {
+          try {
+            thread.join();
+          } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        if (sender.failure != null) throw sender.failure;
+        if (response.startsWith("ERROR ")) throw new IOException(response.substring(6));
+        if (!response.startsWith("OK ")) throw new IOException("Unexpected response '" + response + "'.");
+        return Long.parseLong(response.substring(3));
+      }
+    }
+  }
+
+  /**
+   * Writes a request line and its body in pieces, and ends the output of the connection.
+   * A body of unknown length is written in frames of a line 'DATA length' followed by that many bytes, and a frame of length
+   * 0. A server that has already answered with an error may close the connection first, which is reported by the response.
+   */
+  private static final class Sender implements Runnable {
+
+    private final SocketChannel channel;
+    private final String line;
+    private final InputStream body;
+    private final long length;
+    // the error of reading the body, which is reported instead of the response of the server.
+    private IOException failure = null;
+
+    Sender(SocketChannel channel, String line, InputStream body, long length) {
+      this.channel = channel;
+      this.line = line;
+      this.body = body;
+      this.length = length;
+    }
+
+    @Override
+    public void run() {
+      try {
+        write(line);
+        if (body != null) {
+          byte[] buffer = new byte[ParseServer.BODY_BUFFER_SIZE];
+          for (long remaining = length < 0 ? Long.MAX_VALUE : length; remaining > 0; ) {
+            int read = read(buffer, (int) Math.min(buffer.length, remaining));
+            if (read < 0) break;
+            if (length < 0) write("DATA " + read + "\n");
+            write(buffer, read);
+            remaining -= read;
+          }
+          if (length < 0 && failure == null) write("DATA 0\n");
+        }
+        channel.shutdownOutput();
+      } catch (IOException err) {
+        // the response says why the server stopped reading.
+      }
+    }
+
+    /**
+     * Reads the next piece of the body, and remembers an error so that the body ends early instead.
+     */
+    private int read(byte[] buffer, int length) {
+      try {
+        return body.read(buffer, 0, length);
+      } catch (IOException err) {
+        failure = err;
+        return -1;
+      }
+    }
+
+    private void write(String line) throws IOException {
+      byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+      write(bytes, bytes.length);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+      while (buffer.hasRemaining()) channel.write(buffer);
+    }
+  }
+
+  private static String name(BatchConverter.Format format) {
+    return format.name().toLowerCase(Locale.ROOT);
+  }
+}
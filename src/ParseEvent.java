@@ -0,0 +1,62 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event that covers a whole parse and carries its {@link ParseStats}, so that slow parses can be
+ * correlated with garbage collection and allocation in the same recording.
+ * Enable it in a recording with 'jfr configure' or with the setting 'TurtleParser.Parse#enabled=true'.
+ */
+@Name("TurtleParser.Parse")
+@Label("Turtle Parse")
+@Category("Turtle Parser")
+@Description("A turtle file parsed by the TurtleParser, with the time spent in each phase")
+class ParseEvent extends Event {
+
+  @Label("Source")
+  String source;
+
+  @Label("Bytes Read")
+  @DataAmount
+  long bytesRead;
+
+  @Label("Statements")
+  long statements;
+
+  @Label("Directives")
+  long directives;
+
+  @Label("URLs")
+  long urls;
+
+  @Label("Literals")
+  long literals;
+
+  @Label("Blank Nodes")
+  long blankNodes;
+
+  @Label("Collections")
+  long collections;
+
+  @Label("Triples")
+  long triples;
+
+  @Label("Prefixes Resolved")
+  long prefixesResolved;
+
+  @Label("Read Data")
+  @Timespan
+  long readData;
+
+  @Label("Build Triples")
+  @Timespan
+  long buildTriples;
+
+  @Label("Store")
+  @Timespan
+  long store;
+}
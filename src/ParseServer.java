@@ -0,0 +1,393 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Parses turtle data for clients in a resident process, so that a file costs a parse with a warmed up parser instead of
+ * the start of a new JVM. The server listens on a Unix domain socket, or on a TCP port of the loopback address, and
+ * handles one request per connection. A request is a single line, followed by the data for an inline body:
+ *
+ * PARSE format path        parses the file at the path, which is absolute or relative to the root directory
+ * BODY format length       parses the turtle data of the given number of bytes that follow the line
+ * BODY format chunked      parses the turtle data of the frames that follow the line, up to a frame of length 0
+ *
+ * where the format is ntriples, turtle or csv, as in {@link BatchConverter.Format}. The converted triples are sent as they
+ * are parsed, in frames of a line 'DATA length' followed by that many bytes of output. The response ends with a line
+ * 'OK n' with the number of triples, or a line 'ERROR message' if the data could not be parsed, in which case the frames
+ * before it may hold part of the output. A chunked body uses the same frames, so data of unknown length, such as the output
+ * of another program, can be sent without buffering it first. As the output is sent while a body is still arriving, a client must read the
+ * response while it sends the body. Since the protocol is plain text, a request can also be sent with tools
+ * such as netcat.
+ *
+ * Neither the data nor the output of a request is held in memory as a whole: a body is fed to a {@link TurtlePushParser}
+ * as it arrives, and the output is sent whenever the buffer of its writer is full. A request only keeps the statement
+ * that is being parsed, which may be up to {@value #MAX_STATEMENT} bytes for a body. As the output is streamed, the turtle
+ * output declares the prefixes, and uses the base URL, that have been declared before the first triple.
+ *
+ * A PARSE request reads a file with the rights of the server, so it is restricted. With a root directory, only the files
+ * inside it can be parsed, after symbolic links are resolved. Without one, PARSE is only accepted on a Unix domain socket,
+ * whose file permissions decide who may connect, and is refused over TCP, where any local user could connect.
+ *
+ * The requests are handled on a fixed number of threads. Up to a fixed number of further connections are accepted and
+ * wait for a thread; beyond that the server stops accepting, so further clients wait in the backlog of the socket.
+ */
+public class ParseServer implements Closeable {
+
+  // the longest request line that is accepted.
+  static final int MAX_LINE = 64 << 10;
+  // the longest statement of a body that is buffered.
+  static final int MAX_STATEMENT = 64 << 20;
+  // the size of the pieces in which a body is read.
+  static final int BODY_BUFFER_SIZE = 64 << 10;
+  // the length of a body that is sent in frames.
+  static final String CHUNKED = "chunked";
+
+  private final SocketAddress address;
+  // the directory that PARSE requests are restricted to, or null.
+  private final Path root;
+  private final ServerSocketChannel server;
+  private final ExecutorService pool;
+  // a permit for every connection that is being handled or waiting for a thread.
+  private final Semaphore connections;
+  private final PrintStream log;
+
+  /**
+   * Creates a server and binds it to its address.
+   * @param address (SocketAddress) a Unix domain socket address, or an address of the loopback interface.
+   * @param threads (int) the number of requests handled at the same time.
+   * @param queueSize (int) the number of accepted connections that may wait for a thread.
+   * @param log (PrintStream) receives a line for every request that fails.
+   * @throws IOException if the address cannot be bound, or if it is a file that is not a socket.
+   */
+  public ParseServer(SocketAddress address, int threads, int queueSize, PrintStream log) throws IOException {
+    this(address, threads, queueSize, null, log);
+  }
+
+  /**
+   * Creates a server that only parses the files inside a directory, and binds it to its address.
+   * @param address (SocketAddress) a Unix domain socket address, or an address of the loopback interface.
+   * @param threads (int) the number of requests handled at the same time.
+   * @param queueSize (int) the number of accepted connections that may wait for a thread.
+   * @param root (Path) the directory of the files that PARSE requests may read, or null to accept any file on a Unix
+   *             domain socket and none over TCP.
+   * @param log (PrintStream) receives a line for every request that fails.
+   * @throws IOException if the address cannot be bound, if it is a file that is not a socket, or if the root does not exist.
+   */
+  public ParseServer(SocketAddress address, int threads, int queueSize, Path root, PrintStream log) throws IOException {
+    if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1.");
+    if (queueSize < 0) throw new IllegalArgumentException("The queue size must not be negative.");
+    this.address = address;
+    this.root = root != null ? root.toRealPath() : null;
+    this.log = log;
+    if (address instanceof UnixDomainSocketAddress) {
+      // the socket file of an earlier server is left behind when it is killed.
+      Path path = ((UnixDomainSocketAddress) address).getPath();
+      if (Files.isRegularFile(path) || Files.isDirectory(path)) throw new IOException("'" + path + "' exists and is not a socket.");
+      Files.deleteIfExists(path);
+      server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    } else {
+      server = ServerSocketChannel.open();
+    }
+    server.bind(address, threads + queueSize);
+    pool = Executors.newFixedThreadPool(threads);
+    connections = new Semaphore(threads + queueSize);
+  }
+
+  /**
+   * Parses an address: a port number for TCP on the loopback address, or else the path of a Unix domain socket.
+   * @param address (String) the port or the path.
+   * @return (SocketAddress) the address.
+   */
+  public static SocketAddress address(String address) {
+    if (!address.isEmpty() && address.chars().allMatch(Character::isDigit))
+      return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+    return UnixDomainSocketAddress.of(address);
+  }
+
+  /**
+   * Accepts and handles connections until the server is closed.
+   * @throws IOException if a connection cannot be accepted.
+   */
+  public void serve() throws IOException {
+    while (true) {
+      connections.acquireUninterruptibly();
+      SocketChannel client;
+      try {
+        client = server.accept();
+      } catch (ClosedChannelException err) {
+        connections.release();
+        return;
+      } catch (IOException err) {
+        connections.release();
+        throw err;
+      }
+      pool.execute(() -> {
+        try {
+          handle(client);
+        } finally {
+          connections.release();
+        }
+      });
+    }
+  }
+
+  /**
+   * Stops accepting connections and lets the requests in progress finish.
+   * The socket file of a Unix domain socket is deleted.
+   * @throws IOException if the socket cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    server.close();
+    pool.shutdown();
+    if (address instanceof UnixDomainSocketAddress) Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+  }
+
+  /**
+   * Handles a single request and closes the connection.
+   * @param client (SocketChannel) the connection.
+   */
+  private void handle(SocketChannel client) {
+    try (client) {
+      InputStream in = new BufferedInputStream(Channels.newInputStream(client));
+      OutputStream out = Channels.newOutputStream(client);
+      String request = null;
+      ResponseSink response;
+      try {
+        request = readLine(in);
+        String[] fields = request.split(" ", 3);
+        if (fields.length < 3) throw new IllegalArgumentException("Expected 'PARSE format path' or 'BODY format length'.");
+        response = new ResponseSink(format(fields[1]), new FrameOutputStream(out));
+        if (fields[0].equals("PARSE")) parseFile(fields[2], response);
+        else if (fields[0].equals("BODY")) parseBody(in, fields[2], response);
+        else throw new IllegalArgumentException("Unknown request '" + fields[0] + "'.");
+      } catch (RuntimeException | IOException err) {
+        String message = String.valueOf(err.getMessage()).replace('\n', ' ');
+        log.println("Request '" + request + "' failed: " + message);
+        out.write(("ERROR " + message + "\n").getBytes(StandardCharsets.UTF_8));
+        return;
+      }
+      out.write(("OK " + response.count + "\n").getBytes(StandardCharsets.UTF_8));
+    } catch (IOException | UncheckedIOException err) {
+      // the client has gone away, there is no one to report to.
+    }
+  }
+
+  private void parseFile(String fileName, ResponseSink response) throws IOException {
+    Path path = resolve(fileName);
+    if (!Files.isRegularFile(path)) throw new IOException("File '" + fileName + "' does not exist.");
+    TurtleParser parser = new TurtleParser();
+    response.from(parser::getPrefixMap, parser::getBaseURL);
+    if (NTriplesParser.isNTriples(path)) {
+      NTriplesParser.parse(path, 1, null, response);
+    } else {
+      parser.process(TurtleInput.open(path), response);
+      response.finish();
+    }
+  }
+
+  /**
+   * Finds the file of a PARSE request and checks that the request may read it.
+   * @param fileName (String) the path of the request.
+   * @return (Path) the file, with symbolic links resolved.
+   * @throws IOException if the file does not exist or may not be read.
+   */
+  private Path resolve(String fileName) throws IOException {
+    if (root == null && !(address instanceof UnixDomainSocketAddress))
+      throw new IOException("PARSE is only accepted on a Unix domain socket unless the server has a root directory.");
+    Path path;
+    try {
+      path = (root != null ? root.resolve(fileName) : Paths.get(fileName)).toRealPath();
+    } catch (IOException | InvalidPathException err) {
+      throw new IOException("File '" + fileName + "' does not exist.");
+    }
+    if (root != null && !path.startsWith(root)) throw new IOException("File '" + fileName + "' is outside of the root directory.");
+    return path;
+  }
+
+  private static void parseBody(InputStream in, String length, ResponseSink response) throws IOException {
+    TurtlePushParser parser = new TurtlePushParser(response, null, MAX_STATEMENT);
+    response.from(parser::getPrefixMap, parser::getBaseURL);
+    byte[] buffer = new byte[BODY_BUFFER_SIZE];
+    if (length.equals(CHUNKED)) {
+      for (long size = frameLength(in); size > 0; size = frameLength(in)) feed(in, size, parser, buffer);
+    } else {
+      feed(in, length(length), parser, buffer);
+    }
+    parser.finish();
+  }
+
+  /**
+   * Reads the line that starts a frame of a chunked body.
+   * @param in (InputStream) the connection.
+   * @return (long) the number of bytes in the frame, 0 for the frame that ends the body.
+   * @throws IOException if the connection ends before the line.
+   */
+  private static long frameLength(InputStream in) throws IOException {
+    String line = readLine(in);
+    if (!line.startsWith("DATA ")) throw new IllegalArgumentException("Expected 'DATA length' but got '" + line + "'.");
+    return length(line.substring(5));
+  }
+
+  private static long length(String length) {
+    long size;
+    try {
+      size = Long.parseLong(length);
+    } catch (NumberFormatException err) {
+      throw new IllegalArgumentException("Invalid length '" + length + "'.");
+    }
+    if (size < 0) throw new IllegalArgumentException("Invalid length '" + length + "'.");
+    return size;
+  }
+
+  /**
+   * Passes a number of bytes of the body to the parser in pieces of the size of the buffer.
+   * @param in (InputStream) the connection.
+   * @param size (long) the number of bytes.
+   * @param parser (TurtlePushParser) the parser of the body.
+   * @param buffer (byte[]) the buffer that the pieces are read into.
+   * @throws IOException if the connection ends before the bytes.
+   */
+  private static void feed(InputStream in, long size, TurtlePushParser parser, byte[] buffer) throws IOException {
+    for (long remaining = size; remaining > 0; ) {
+      int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (read < 0) throw new IOException("The body ended after " + (size - remaining) + " of " + size + " bytes.");
+      parser.feed(ByteBuffer.wrap(buffer, 0, read));
+      remaining -= read;
+    }
+  }
+
+  /**
+   * Parses the name of an output format.
+   * @param name (String) the name, in any case.
+   * @return (BatchConverter.Format) the format.
+   */
+  static BatchConverter.Format format(String name) {
+    for (BatchConverter.Format format : BatchConverter.Format.values())
+      if (format.name().equals(name.toUpperCase(Locale.ROOT))) return format;
+    throw new IllegalArgumentException("Unknown format '" + name + "'.");
+  }
+
+  /**
+   * Reads a line of UTF-8 text that ends with '\n', without the line break.
+   * @param in (InputStream) the stream, which is left at the start of the next line.
+   * @return (String) the line.
+   * @throws IOException if the stream ends before the line or the line is too long.
+   */
+  static String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) throw new IOException("The connection ended before the end of the line.");
+      if (line.size() == MAX_LINE) throw new IOException("The line is longer than " + MAX_LINE + " bytes.");
+      line.write(b);
+    }
+    String text = line.toString(StandardCharsets.UTF_8);
+    return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+  }
+
+  /**
+   * Writes the triples of a request to the client as they are parsed, and counts them.
+   * The writer is created at the first triple, so that it uses the prefixes and base URL declared before it.
+   */
+  private static final class ResponseSink implements TripleSink {
+
+    private final BatchConverter.Format format;
+    private final OutputStream out;
+    private Supplier<PrefixMap> prefixes;
+    private Supplier<String> baseURL;
+    private TripleWriter writer = null;
+    private long count = 0;
+
+    ResponseSink(BatchConverter.Format format, OutputStream out) {
+      this.format = format;
+      this.out = out;
+    }
+
+    /**
+     * Sets the parser whose prefixes and base URL the output uses.
+     * @param prefixes (Supplier<PrefixMap>) the prefixes declared so far.
+     * @param baseURL (Supplier<String>) the base URL declared so far.
+     */
+    void from(Supplier<PrefixMap> prefixes, Supplier<String> baseURL) {
+      this.prefixes = prefixes;
+      this.baseURL = baseURL;
+    }
+
+    @Override
+    public void accept(Triple triple) {
+      writer().accept(triple);
+      count++;
+    }
+
+    @Override
+    public void finish() {
+      writer().finish();
+    }
+
+    private TripleWriter writer() {
+      if (writer == null) {
+        // the header has been written once the first triple is, so later declarations must not change the output.
+        PrefixMap declared = new PrefixMap();
+        for (Map.Entry<String, String> prefix : prefixes.get().asMap().entrySet()) declared.declare(prefix.getKey(), prefix.getValue());
+        writer = BatchConverter.writer(format, out, declared, baseURL.get());
+      }
+      return writer;
+    }
+  }
+
+  /**
+   * Sends every write as a frame of a line 'DATA length' followed by the bytes.
+   */
+  private static final class FrameOutputStream extends OutputStream {
+
+    private final OutputStream out;
+
+    FrameOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) return;
+      out.write(("DATA " + length + "\n").getBytes(StandardCharsets.UTF_8));
+      out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports the triples of a store as a number of CSV part files, 'part-00000.csv', 'part-00001.csv' and so on, so that a
+ * database can load the parts over several connections at the same time. The parts are encoded and written in parallel,
+ * each by its own {@link CsvWriter} over its own file channel, and a 'manifest.csv' lists the file, row count and size
+ * of every part once all of them have been written.
+ *
+ * The triples are partitioned by their subject or by their predicate, so all triples of a subject or predicate end up in
+ * the same part. With hash partitioning the part is chosen by a hash of the term, which sends a term to the same part in
+ * every export with the same number of parts. With range partitioning the terms are taken in the order in which they first
+ * occur in the data and cut into consecutive ranges with about the same number of triples, which keeps the parts balanced
+ * when a few terms have many triples. Within a part the triples keep the order of the store.
+ */
+public class PartitionedExporter {
+
+  /**
+   * The term that decides the part of a triple.
+   */
+  public enum Key {
+    SUBJECT,
+    PREDICATE
+  }
+
+  /**
+   * How the terms are assigned to the parts.
+   */
+  public enum Scheme {
+    HASH,   // by a hash of the term
+    RANGE   // by consecutive ranges of terms in order of first occurrence
+  }
+
+  /**
+   * A part file that has been written.
+   * @param file (Path) the part file.
+   * @param rows (int) the number of triples in the part, not counting the header.
+   * @param bytes (long) the size of the file.
+   */
+  public record Part(Path file, int rows, long bytes) {
+  }
+
+  static final String MANIFEST = "manifest.csv";
+
+  private final Path outputDirectory;
+  private final int parts;
+  private final Key key;
+  private final Scheme scheme;
+  private final int threads;
+
+  /**
+   * Creates an exporter.
+   * @param outputDirectory (Path) the directory the parts and the manifest are written to, which is created if needed.
+   * @param parts (int) the number of part files.
+   * @param key (Key) the term that the triples are partitioned by.
+   * @param scheme (Scheme) hash or range partitioning.
+   * @param threads (int) the number of parts written at the same time.
+   */
+  public PartitionedExporter(Path outputDirectory, int parts, Key key, Scheme scheme, int threads) {
+    if (parts < 1) throw new IllegalArgumentException("The number of parts must be at least 1.");
+    if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1.");
+    this.outputDirectory = outputDirectory;
+    this.parts = parts;
+    this.key = key;
+    this.scheme = scheme;
+    this.threads = threads;
+  }
+
+  /**
+   * Writes the triples of a store to the part files and the manifest, replacing files of the same name.
+   * Parts of an earlier export with more parts are left as they are, but are not listed in the manifest.
+   * @param store (TripleStore) the triples to export, which must not change during the export.
+   * @return (List<Part>) the parts in order, including those without any triples.
+   * @throws IOException if a part or the manifest cannot be written.
+   */
+  public List<Part> export(TripleStore store) throws IOException {
+    Files.createDirectories(outputDirectory);
+    int[] termParts = scheme == Scheme.HASH ? hashParts(store) : rangeParts(store);
+
+    // sort the triple indexes by part with a counting sort, which keeps the order of the store within each part.
+    int[] starts = new int[parts + 1];
+    for (int i = 0; i < store.size(); i++) starts[termParts[keyOf(store, i)] + 1]++;
+    for (int part = 0; part < parts; part++) starts[part + 1] += starts[part];
+    int[] order = new int[store.size()];
+    int[] next = starts.clone();
+    for (int i = 0; i < store.size(); i++) order[next[termParts[keyOf(store, i)]]++] = i;
+
+    List<Part> written = new ArrayList<>();
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, parts));
+    try {
+      List<Future<Part>> results = new ArrayList<>();
+      for (int part = 0; part < parts; part++) {
+        int from = starts[part];
+        int to = starts[part + 1];
+        Path file = outputDirectory.resolve(String.format(Locale.ROOT, "part-%05d.csv", part));
+        results.add(pool.submit(() -> writePart(file, store, order, from, to)));
+      }
+      for (Future<Part> result : results) written.add(result.get());
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new IOException("The export was interrupted.", err);
+    } catch (ExecutionException err) {
+      if (err.getCause() instanceof IOException) throw (IOException) err.getCause();
+      if (err.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) err.getCause()).getCause();
+      throw new IllegalStateException(err.getCause());
+    } finally {
+      pool.shutdown();
+    }
+
+    StringBuilder manifest = new StringBuilder("file,rows,bytes\n");
+    for (Part part : written) manifest.append(part.file().getFileName()).append(',').append(part.rows()).append(',').append(part.bytes()).append('\n');
+    Files.write(outputDirectory.resolve(MANIFEST), manifest.toString().getBytes(StandardCharsets.UTF_8));
+    return written;
+  }
+
+  /**
+   * Writes one part file.
+   * @param file (Path) the part file.
+   * @param store (TripleStore) the triples.
+   * @param order (int[]) the triple indexes sorted by part.
+   * @param from (int) index in order of the first triple of the part.
+   * @param to (int) index in order after the last triple of the part.
+   * @return (Part) the written part.
+   * @throws IOException if the file cannot be written.
+   */
+  private static Part writePart(Path file, TripleStore store, int[] order, int from, int to) throws IOException {
+    TermDictionary dictionary = store.getDictionary();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+         OutputStream out = Channels.newOutputStream(channel);
+         CsvWriter writer = new CsvWriter(out, ",", '"')) {
+      for (int i = from; i < to; i++) {
+        int triple = order[i];
+        writer.write(dictionary.decode(store.getSubject(triple)), dictionary.decode(store.getPredicate(triple)), dictionary.decode(store.getObject(triple)));
+      }
+      // ends the output, which writes the header of a part without triples too.
+      writer.finish();
+      return new Part(file, to - from, channel.size());
+    }
+  }
+
+  /**
+   * Assigns the key terms to parts by a hash of their text, so that the assignment does not depend on the IDs.
+   * @param store (TripleStore) the triples.
+   * @return (int[]) the part of every key term ID.
+   */
+  private int[] hashParts(TripleStore store) {
+    TermDictionary dictionary = store.getDictionary();
+    int[] termParts = new int[dictionary.size()];
+    boolean[] assigned = new boolean[dictionary.size()];
+    for (int i = 0; i < store.size(); i++) {
+      int id = keyOf(store, i);
+      if (assigned[id]) continue;
+      termParts[id] = (int) Long.remainderUnsigned(LongHashSet.mix(dictionary.decode(id).hashCode()), parts);
+      assigned[id] = true;
+    }
+    return termParts;
+  }
+
+  /**
+   * Assigns the key terms to parts by cutting the terms, in order of their IDs, into ranges of about the same number of triples.
+   * The dictionary hands out IDs in order of first occurrence, so this is also the order of the data.
+   * @param store (TripleStore) the triples.
+   * @return (int[]) the part of every key term ID.
+   */
+  private int[] rangeParts(TripleStore store) {
+    int[] counts = new int[store.getDictionary().size()];
+    for (int i = 0; i < store.size(); i++) counts[keyOf(store, i)]++;
+    int[] termParts = new int[counts.length];
+    long before = 0;
+    for (int id = 0; id < counts.length; id++) {
+      // a term starts in the part that its first triple would fall in if every part had exactly the same size.
+      termParts[id] = (int) (before * parts / Math.max(1, store.size()));
+      before += counts[id];
+    }
+    return termParts;
+  }
+
+  private int keyOf(TripleStore store, int index) {
+    return key == Key.SUBJECT ? store.getSubject(index) : store.getPredicate(index);
+  }
+}
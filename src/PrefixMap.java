@@ -0,0 +1,167 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves prefixed names to IRIs and compacts IRIs back into prefixed names.
+ * Expansion looks the prefix label up in a hash table and compaction walks a trie of the namespaces,
+ * so both cost time proportional to the length of the term no matter how many prefixes are declared.
+ * The base namespace, declared with '@prefix :' or '@base', has the empty label.
+ * A map may be read by many threads at once as long as no prefixes are declared while it is being read.
+ */
+public class PrefixMap {
+
+  // label (without the ':') -> namespace, in the order the labels were first declared.
+  private final Map<String, String> namespaces = new LinkedHashMap<>();
+
+  private final Node root = new Node();
+
+  // whether declarations are rejected, see makeReadOnly().
+  private boolean readOnly = false;
+
+  /**
+   * A node of the namespace trie; the namespace ending at a node is compacted with the node's label.
+   */
+  private static class Node {
+    private final Map<Character, Node> children = new HashMap<>(4);
+    private String label = null;
+  }
+
+  /**
+   * Declares a prefix, replacing any earlier declaration of the same label.
+   * @param label (String) the prefix label without the ':', or an empty string for the base namespace.
+   * @param namespace (String) the IRI the prefix stands for.
+   * @throws UnsupportedOperationException if the map is read-only.
+   */
+  public void declare(String label, String namespace) {
+    if (readOnly) throw new UnsupportedOperationException("The prefix map is read-only.");
+    String previous = namespaces.put(label, namespace);
+    if (previous != null && !previous.equals(namespace)) {
+      Node node = find(previous);
+      if (node != null && label.equals(node.label)) {
+        // hand the old namespace over to another label that still refers to it, if there is one.
+        node.label = null;
+        for (Map.Entry<String, String> entry : namespaces.entrySet())
+          if (entry.getValue().equals(previous)) {
+            node.label = entry.getKey();
+            break;
+          }
+      }
+    }
+
+    Node node = root;
+    for (int i = 0; i < namespace.length(); i++)
+      node = node.children.computeIfAbsent(namespace.charAt(i), c -> new Node());
+    // when two labels share a namespace the one declared first is kept for compaction.
+    if (node.label == null) node.label = label;
+  }
+
+  /**
+   * Returns the namespace of a prefix.
+   * @param label (String) the prefix label without the ':'.
+   * @return (String) the namespace, or null if the prefix has not been declared.
+   */
+  public String getNamespace(String label) {
+    return namespaces.get(label);
+  }
+
+  /**
+   * Expands a prefixed name such as 'rdfs:label' into an IRI.
+   * @param name (String) the prefixed name.
+   * @return (String) the IRI, or null if the name has no ':' or its prefix has not been declared.
+   */
+  public String expand(String name) {
+    int colon = name.indexOf(':');
+    if (colon < 0) return null;
+    String namespace = namespaces.get(name.substring(0, colon));
+    if (namespace == null) return null;
+    return namespace.concat(name.substring(colon + 1));
+  }
+
+  /**
+   * Compacts an IRI into a prefixed name using the longest declared namespace that leaves a valid local name.
+   * @param iri (String) the IRI.
+   * @return (String) the prefixed name, or null if no declared namespace can be used.
+   */
+  public String compact(String iri) {
+    // the nodes where a namespace ends along the path of the IRI, from shortest to longest.
+    int[] ends = new int[8];
+    Node[] matches = new Node[8];
+    int count = 0;
+
+    Node node = root;
+    for (int i = 0; ; i++) {
+      if (node.label != null) {
+        if (count == ends.length) {
+          ends = Arrays.copyOf(ends, count * 2);
+          matches = Arrays.copyOf(matches, count * 2);
+        }
+        ends[count] = i;
+        matches[count++] = node;
+      }
+      if (i == iri.length()) break;
+      node = node.children.get(iri.charAt(i));
+      if (node == null) break;
+    }
+
+    for (int m = count - 1; m >= 0; m--) {
+      if (isLocalName(iri, ends[m])) return matches[m].label + ":" + iri.substring(ends[m]);
+    }
+    return null;
+  }
+
+  /**
+   * Finds the longest declared namespace that an IRI starts with, whether or not the rest of the IRI is a valid local name.
+   * @param iri (String) the IRI.
+   * @return (String) the namespace, or null if the IRI does not start with any declared namespace.
+   */
+  String matchNamespace(String iri) {
+    Node node = root;
+    int end = -1;
+    for (int i = 0; node != null; i++) {
+      if (node.label != null) end = i;
+      if (i == iri.length()) break;
+      node = node.children.get(iri.charAt(i));
+    }
+    return end >= 0 ? iri.substring(0, end) : null;
+  }
+
+  /**
+   * Returns the declared prefixes.
+   * @return (Map<String, String>) a read-only map from prefix label to namespace, in the order the labels were first declared.
+   */
+  public Map<String, String> asMap() {
+    return Collections.unmodifiableMap(namespaces);
+  }
+
+  /**
+   * Makes the map read-only, so that it can be shared by threads that only read from it.
+   */
+  void makeReadOnly() {
+    readOnly = true;
+  }
+
+  private Node find(String namespace) {
+    Node node = root;
+    for (int i = 0; i < namespace.length() && node != null; i++) node = node.children.get(namespace.charAt(i));
+    return node;
+  }
+
+  /**
+   * Checks if the end of an IRI can be written as the local part of a prefixed name without escaping.
+   * @param iri (String) the IRI.
+   * @param start (int) index of the first character of the local part.
+   * @return (boolean) true if the local part is valid.
+   */
+  private static boolean isLocalName(String iri, int start) {
+    for (int i = start; i < iri.length(); i++) {
+      char c = iri.charAt(i);
+      boolean valid = Character.isLetterOrDigit(c) || c == '_'
+          || ((c == '-' || c == '.') && i > start) || (c == ':' && i > start);
+      if (!valid) return false;
+    }
+    return iri.length() == start || iri.charAt(iri.length() - 1) != '.';
+  }
+}
@@ -0,0 +1,193 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Finds the ends of the top-level statements in Turtle data without tokenizing it.
+ * A statement ends at a '.' that is outside of any IRI, literal or comment, and that is not part of a name such as 'ex:1.2'
+ * or a number such as '1.5'. A '.' inside a blank node or collection also ends the statement, as it does for the
+ * {@link TurtleParser}, which then reports the unclosed '[' or '(' instead of reading the following statements into it.
+ * The splitter keeps its state between calls, so the data can be scanned in pieces of any size.
+ */
+public class StatementSplitter {
+
+  private static final int NORMAL = 0;
+  private static final int IRI = 1;
+  private static final int COMMENT = 2;
+  private static final int SINGLE_QUOTED = 3;  // '...'
+  private static final int QUOTE = 4;          // seen " and waiting to find out which kind of literal it opens
+  private static final int DOUBLE_QUOTE = 5;   // seen "" which is either an empty literal or the start of """
+  private static final int DOUBLE_QUOTED = 6;  // "..."
+  private static final int LONG_QUOTED = 7;    // """..."""
+  private static final int DOT = 8;            // seen a '.' that may end the statement
+
+  private int state = NORMAL;
+  private boolean escaped = false;
+  private int quoteRun = 0;
+
+  // offset of the next byte to be scanned.
+  private long offset = 0;
+
+  private long statementStart = 0;
+  private long endedStatementStart = 0;
+  private boolean statementStarted = false;
+  private boolean directive = false;
+  private boolean lastDirective = false;
+
+  /**
+   * Scans bytes until the end of a statement is found or the buffer is exhausted.
+   * @param buffer (ByteBuffer) the next piece of data, its position is advanced past the scanned bytes.
+   * @return (long) the offset just after the '.' that ends the statement, or -1 if the buffer ended first.
+   */
+  public long scan(ByteBuffer buffer) {
+    int position = buffer.position();
+    int limit = buffer.limit();
+    while (position < limit) {
+      byte c = buffer.get(position);
+      if (state == DOT) {
+        state = NORMAL;
+        if (!TurtleLexer.continuesName(c)) {
+          buffer.position(position);
+          return endStatement(offset);
+        }
+      }
+      position++;
+      offset++;
+      switch (state) {
+        case NORMAL:
+          scanNormal(c);
+          break;
+        case IRI:
+          if (c == '>') state = NORMAL;
+          break;
+        case COMMENT:
+          if (c == '\n') state = NORMAL;
+          break;
+        case SINGLE_QUOTED:
+          if (escaped) escaped = false;
+          else if (c == '\\') escaped = true;
+          else if (c == '\'') state = NORMAL;
+          break;
+        case QUOTE:
+          if (c == '"') state = DOUBLE_QUOTE;
+          else {
+            state = DOUBLE_QUOTED;
+            escaped = c == '\\';
+          }
+          break;
+        case DOUBLE_QUOTE:
+          if (c == '"') {
+            state = LONG_QUOTED;
+            quoteRun = 0;
+          } else {
+            state = NORMAL;
+            scanNormal(c);
+          }
+          break;
+        case DOUBLE_QUOTED:
+          if (escaped) escaped = false;
+          else if (c == '\\') escaped = true;
+          else if (c == '"') state = NORMAL;
+          break;
+        case LONG_QUOTED:
+          if (escaped) escaped = false;
+          else if (c == '"') quoteRun++;
+          else if (quoteRun >= 3) {
+            state = NORMAL;
+            scanNormal(c);
+          } else {
+            quoteRun = 0;
+            escaped = c == '\\';
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    buffer.position(position);
+    return -1;
+  }
+
+  /**
+   * Signals that there is no more data.
+   * @return (long) the offset just after a final '.' that had not been confirmed yet, or -1 if there is none.
+   */
+  public long finish() {
+    if (state == DOT) {
+      state = NORMAL;
+      return endStatement(offset);
+    }
+    if (state == LONG_QUOTED && quoteRun >= 3) state = NORMAL;
+    return -1;
+  }
+
+  /**
+   * Returns the offset at which the most recently ended statement started, including any whitespace or comments before it.
+   * @return (long) the offset of the first byte of the statement.
+   */
+  public long getStatementStart() {
+    return endedStatementStart;
+  }
+
+  /**
+   * Checks if the most recently ended statement is a @prefix or @base directive.
+   * @return (boolean) true if the statement is a directive.
+   */
+  public boolean isDirective() {
+    return lastDirective;
+  }
+
+  /**
+   * Returns the number of bytes scanned so far.
+   * @return (long) the offset of the next byte to be scanned.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Checks if the data scanned since the last statement end contains anything other than whitespace and comments.
+   * @return (boolean) true if an incomplete statement is pending.
+   */
+  public boolean hasPartialStatement() {
+    return statementStarted;
+  }
+
+  /**
+   * Handles a byte outside of IRIs, literals and comments.
+   * @param c (byte) the byte.
+   */
+  private void scanNormal(byte c) {
+    if (!statementStarted && !TurtleLexer.isWhiteSpace(c) && c != '#') {
+      statementStarted = true;
+      directive = c == '@';
+    }
+    switch (c) {
+      case '<':
+        state = IRI;
+        break;
+      case '#':
+        state = COMMENT;
+        break;
+      case '\'':
+        state = SINGLE_QUOTED;
+        escaped = false;
+        break;
+      case '"':
+        state = QUOTE;
+        break;
+      case '.':
+        state = DOT;
+        break;
+      default:
+        break;
+    }
+  }
+
+  private long endStatement(long end) {
+    endedStatementStart = statementStart;
+    statementStart = end;
+    statementStarted = false;
+    lastDirective = directive;
+    directive = false;
+    return end;
+  }
+}
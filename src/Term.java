@@ -0,0 +1,265 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A term of a triple that is only turned into a String when it is read.
+ * The lexer does not copy the text of IRIs and literals: a term points at the raw UTF-8 bytes between the delimiters,
+ * still with their escape sequences, and decodes them the first time {@link #toString()} is called. A consumer that
+ * filters or counts triples without reading a long literal never pays for decoding it.
+ *
+ * When the input is memory-mapped the bytes are a slice of the mapping itself. Otherwise the raw bytes are copied once,
+ * because the window of the input is reused, so a term stays valid for as long as it is referenced either way.
+ *
+ * Decoding handles the escapes of Turtle: \t, \b, \n, \r, \f, \", \' and \\ in literals, and \\uXXXX and \\UXXXXXXXX in
+ * both literals and IRIs. Unknown escapes are kept as they are, and so are the escapes of characters that an IRI cannot
+ * contain, such as spaces and angle brackets, so that a decoded IRI can always be written between angle brackets again.
+ * Runs of whitespace in literals, including new lines, are collapsed into a single space, as in the simplified format of
+ * the parser; escaped whitespace is kept.
+ */
+public final class Term {
+
+  private static final int PLAIN = 0;
+  private static final int IRI = 1;
+  private static final int LITERAL = 2;
+
+  private static final Term EMPTY = new Term(null, 0, 0, PLAIN, null, "");
+
+  private final ByteBuffer source;
+  private final int offset;
+  private final int length;
+  private final int kind;
+  // the language tag or datatype of a literal that is written between quotes, or null for the bare content.
+  private final String suffix;
+
+  // the decoded text, set on first use.
+  private String text;
+
+  private Term(ByteBuffer source, int offset, int length, int kind, String suffix, String text) {
+    this.source = source;
+    this.offset = offset;
+    this.length = length;
+    this.kind = kind;
+    this.suffix = suffix;
+    this.text = text;
+  }
+
+  /**
+   * Creates a term from text that has already been decoded, such as a prefixed name that has been expanded.
+   * @param text (String) the text of the term.
+   * @return (Term) the term.
+   */
+  public static Term of(String text) {
+    if (text.isEmpty()) return EMPTY;
+    return new Term(null, 0, 0, PLAIN, null, text);
+  }
+
+  /**
+   * Creates a term over the raw bytes of an IRI, without the angle brackets.
+   * @param source (ByteBuffer) the bytes, which must not change while the term is referenced.
+   * @param offset (int) index of the first byte of the IRI.
+   * @param length (int) number of bytes of the IRI.
+   * @return (Term) the term.
+   */
+  static Term iri(ByteBuffer source, int offset, int length) {
+    return new Term(source, offset, length, IRI, null, null);
+  }
+
+  /**
+   * Creates a term over the raw bytes of the content of a literal, without the quotes.
+   * @param source (ByteBuffer) the bytes, which must not change while the term is referenced.
+   * @param offset (int) index of the first byte of the content.
+   * @param length (int) number of bytes of the content.
+   * @return (Term) the term.
+   */
+  static Term literal(ByteBuffer source, int offset, int length) {
+    return new Term(source, offset, length, LITERAL, null, null);
+  }
+
+  /**
+   * Returns the literal with this content in the form of the parsed data: between quotes, followed by its language tag or datatype.
+   * The bytes are shared, so the literal is still decoded lazily.
+   * @param suffix (String) '@' and the language tag, '^^' and the datatype IRI, or an empty string.
+   * @return (Term) the quoted literal.
+   */
+  Term quoted(String suffix) {
+    if (source == null) return of("\"" + text + "\"" + suffix);
+    return new Term(source, offset, length, LITERAL, suffix, null);
+  }
+
+  /**
+   * Checks if the term is a literal read from the input, without decoding it.
+   * @return (boolean) true for a literal, false for an IRI or a term created from text.
+   */
+  public boolean isLiteral() {
+    return kind == LITERAL;
+  }
+
+  /**
+   * Returns the text of a term that was created from text, such as the label of a blank node, without decoding anything.
+   * @return (String) the text, or null for an IRI or literal that was read from the input.
+   */
+  String plainText() {
+    return kind == PLAIN ? text : null;
+  }
+
+  /**
+   * Returns the decoded text of the term, decoding it on first use.
+   * @return (String) the text.
+   */
+  @Override
+  public String toString() {
+    String decoded = text;
+    if (decoded == null) {
+      byte[] bytes;
+      int start;
+      if (source.hasArray()) {
+        bytes = source.array();
+        start = source.arrayOffset() + offset;
+      } else {
+        bytes = new byte[length];
+        source.get(offset, bytes);
+        start = 0;
+      }
+      decoded = unescape(bytes, start, length, kind == LITERAL);
+      if (suffix != null) decoded = "\"" + decoded + "\"" + suffix;
+      // a String is immutable, so a race between two threads decoding the same term is harmless.
+      text = decoded;
+    }
+    return decoded;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Term && toString().equals(other.toString());
+  }
+
+  @Override
+  public int hashCode() {
+    return toString().hashCode();
+  }
+
+  /**
+   * Decodes the escapes of the raw bytes of a term.
+   * @param bytes (byte[]) the raw UTF-8 bytes.
+   * @param start (int) index of the first byte.
+   * @param length (int) number of bytes.
+   * @param literal (boolean) true to also decode the escapes of literals and collapse whitespace.
+   * @return (String) the decoded text.
+   */
+  static String unescape(byte[] bytes, int start, int length, boolean literal) {
+    int end = start + length;
+    int i = start;
+    while (i < end && bytes[i] != '\\' && !(literal && changesWhiteSpace(bytes, i, end))) i++;
+    if (i == end) return new String(bytes, start, length, StandardCharsets.UTF_8);
+
+    // an escape is never shorter than the UTF-8 encoding of the character it stands for.
+    byte[] out = new byte[length];
+    int n = i - start;
+    System.arraycopy(bytes, start, out, 0, n);
+    boolean afterWhiteSpace = false;
+    while (i < end) {
+      byte c = bytes[i];
+      if (literal && TurtleLexer.isWhiteSpace(c)) {
+        if (!afterWhiteSpace) out[n++] = ' ';
+        afterWhiteSpace = true;
+        i++;
+        continue;
+      }
+      afterWhiteSpace = false;
+      int codePoint = -1;
+      int size = 2;
+      if (c == '\\' && i + 1 < end) {
+        byte escaped = bytes[i + 1];
+        if (escaped == 'u') {
+          codePoint = hex(bytes, i + 2, 4, end);
+          size = 6;
+          if (Character.isHighSurrogate((char) codePoint) && i + 12 <= end && bytes[i + 6] == '\\' && bytes[i + 7] == 'u') {
+            int low = hex(bytes, i + 8, 4, end);
+            if (Character.isLowSurrogate((char) low)) {
+              codePoint = Character.toCodePoint((char) codePoint, (char) low);
+              size = 12;
+            }
+          }
+        } else if (escaped == 'U') {
+          codePoint = hex(bytes, i + 2, 8, end);
+          size = 10;
+        } else if (literal) {
+          codePoint = escapedCharacter(escaped);
+        }
+        if (!literal && codePoint >= 0 && codePoint < 128 && (codePoint <= ' ' || "<>\"{}|^`\\".indexOf(codePoint) >= 0)) codePoint = -1;
+      }
+      if (codePoint < 0) {
+        // not an escape, or one that is unknown and kept as it is.
+        out[n++] = c;
+        i++;
+      } else {
+        if (codePoint > Character.MAX_CODE_POINT || (codePoint <= 0xFFFF && Character.isSurrogate((char) codePoint))) codePoint = 0xFFFD;
+        n = encode(codePoint, out, n);
+        i += size;
+      }
+    }
+    return new String(out, 0, n, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Checks if the whitespace at an index is changed by collapsing: any whitespace other than a space, or a space followed by whitespace.
+   */
+  private static boolean changesWhiteSpace(byte[] bytes, int i, int end) {
+    byte c = bytes[i];
+    if (c == ' ') return i + 1 < end && TurtleLexer.isWhiteSpace(bytes[i + 1]);
+    return TurtleLexer.isWhiteSpace(c);
+  }
+
+  /**
+   * Reads the hexadecimal digits of a \\u or \\U escape.
+   * @param bytes (byte[]) the raw bytes.
+   * @param start (int) index of the first digit.
+   * @param digits (int) the number of digits.
+   * @param end (int) index after the last byte of the term.
+   * @return (int) the value, or -1 if the digits are missing or invalid.
+   */
+  private static int hex(byte[] bytes, int start, int digits, int end) {
+    if (start + digits > end) return -1;
+    int value = 0;
+    for (int i = start; i < start + digits; i++) {
+      int digit = Character.digit(bytes[i], 16);
+      if (digit < 0) return -1;
+      value = (value << 4) | digit;
+    }
+    // eight digits can exceed an int, which is not a code point either.
+    return value < 0 ? Integer.MAX_VALUE : value;
+  }
+
+  private static int escapedCharacter(byte c) {
+    switch (c) {
+      case 't': return '\t';
+      case 'b': return '\b';
+      case 'n': return '\n';
+      case 'r': return '\r';
+      case 'f': return '\f';
+      case '"': return '"';
+      case '\'': return '\'';
+      case '\\': return '\\';
+      default: return -1;
+    }
+  }
+
+  private static int encode(int codePoint, byte[] out, int n) {
+    if (codePoint < 0x80) {
+      out[n++] = (byte) codePoint;
+    } else if (codePoint < 0x800) {
+      out[n++] = (byte) (0xC0 | (codePoint >> 6));
+      out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+    } else if (codePoint < 0x10000) {
+      out[n++] = (byte) (0xE0 | (codePoint >> 12));
+      out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+    } else {
+      out[n++] = (byte) (0xF0 | (codePoint >> 18));
+      out[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+    }
+    return n;
+  }
+}
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * Assigns a unique int ID to every distinct term so that each term only has to be stored once.
+ * IDs are handed out consecutively from 0 in the order the terms are first encoded.
+ * The terms are kept in an open addressing hash table of IDs, which avoids boxing and per-entry objects.
+ */
+public class TermDictionary {
+
+  private static final int EMPTY = -1;
+
+  private String[] terms = new String[1024];
+  private int[] hashes = new int[1024];
+  private int size = 0;
+  // whether new terms are rejected, see makeReadOnly().
+  private boolean readOnly = false;
+
+  // slots contain the ID of a term or EMPTY, the length is always a power of 2.
+  private int[] slots = newSlots(2048);
+
+  /**
+   * Returns the ID of a term, adding the term to the dictionary if it has not been seen before.
+   * @param term (String) the term to encode.
+   * @return (int) the ID of the term.
+   * @throws UnsupportedOperationException if the term is new and the dictionary is read-only.
+   */
+  public int encode(String term) {
+    int hash = mix(term.hashCode());
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != EMPTY) {
+      int id = slots[slot];
+      if (hashes[id] == hash && terms[id].equals(term)) return id;
+      slot = (slot + 1) & mask;
+    }
+
+    if (readOnly) throw new UnsupportedOperationException("The dictionary is read-only.");
+    if (size == terms.length) {
+      terms = Arrays.copyOf(terms, size * 2);
+      hashes = Arrays.copyOf(hashes, size * 2);
+    }
+    int id = size++;
+    terms[id] = term;
+    hashes[id] = hash;
+    slots[slot] = id;
+    if (size * 2 > slots.length) rehash(slots.length * 2);
+    return id;
+  }
+
+  /**
+   * Returns the ID of a term without adding it to the dictionary.
+   * @param term (String) the term to look up.
+   * @return (int) the ID of the term, or -1 if the term is not in the dictionary.
+   */
+  public int lookup(String term) {
+    int hash = mix(term.hashCode());
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+      int id = slots[slot];
+      if (hashes[id] == hash && terms[id].equals(term)) return id;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the term belonging to an ID.
+   * @param id (int) an ID returned by {@link #encode(String)}.
+   * @return (String) the term.
+   */
+  public String decode(int id) {
+    if (id < 0 || id >= size) throw new IndexOutOfBoundsException("Unknown term ID " + id + ".");
+    return terms[id];
+  }
+
+  /**
+   * Returns the number of distinct terms.
+   * @return (int) the number of terms in the dictionary.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Makes the dictionary read-only, so that it can be shared by threads that only read from it.
+   * Terms that are already in the dictionary can still be encoded, new terms are rejected.
+   */
+  void makeReadOnly() {
+    readOnly = true;
+  }
+
+  private void rehash(int capacity) {
+    slots = newSlots(capacity);
+    int mask = capacity - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (slots[slot] != EMPTY) slot = (slot + 1) & mask;
+      slots[slot] = id;
+    }
+  }
+
+  private static int[] newSlots(int capacity) {
+    int[] slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+    return slots;
+  }
+
+  // spreads the bits of String.hashCode(), whose lower bits are poorly distributed for similar IRIs.
+  private static int mix(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * A single lexical unit of Turtle text produced by the {@link TurtleLexer}.
+ * @param type (Type) the kind of token.
+ * @param term (Term) the content of the token, without delimiters for IRIs and literals, which are decoded when they are read.
+ * @param line (int) the line on which the token starts, counting from 1.
+ */
+public record Token(Type type, Term term, int line) {
+
+  /**
+   * Creates a token with content that has already been decoded.
+   * @param type (Type) the kind of token.
+   * @param text (String) the content of the token.
+   * @param line (int) the line on which the token starts, counting from 1.
+   */
+  public Token(Type type, String text, int line) {
+    this(type, Term.of(text), line);
+  }
+
+  /**
+   * The kinds of tokens found in Turtle data.
+   */
+  public enum Type {
+    IRIREF,          // <...>
+    PREFIXED_NAME,   // prefix:local, as well as 'a', numbers, booleans and _:labels
+    LITERAL_SINGLE,  // '...'
+    LITERAL_DOUBLE,  // "..."
+    LITERAL_LONG,    // """..."""
+    LANGTAG,         // @en
+    DATATYPE,        // ^^
+    OPEN_BRACKET,    // [
+    CLOSE_BRACKET,   // ]
+    OPEN_PAREN,      // (
+    CLOSE_PAREN,     // )
+    SEMICOLON,       // ;
+    COMMA,           // ,
+    DOT,             // .
+    PREFIX,          // @prefix
+    BASE,            // @base
+    EOF
+  }
+
+  /**
+   * Returns the decoded content of the token.
+   * @return (String) the content, without delimiters for IRIs and literals.
+   */
+  public String text() {
+    return term.toString();
+  }
+
+  @Override
+  public String toString() {
+    String text = text();
+    return type + (text.isEmpty() ? "" : "(" + text + ")") + "@" + line;
+  }
+}
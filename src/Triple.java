@@ -0,0 +1,106 @@
+/**
+ * A processed triple in the same simplified format as the rows returned by {@link TurtleParser#getData()}.
+ * The terms are kept as {@link Term}s and decoded when they are first read, so a consumer that only looks at some of the
+ * terms, e.g. the predicate, does not pay for decoding the others.
+ */
+public final class Triple {
+
+  private final Term subject;
+  private final Term predicate;
+  private final Term object;
+
+  /**
+   * Creates a triple from decoded terms.
+   * @param subject (String) the subject of the triple.
+   * @param predicate (String) the predicate of the triple.
+   * @param object (String) the object of the triple.
+   */
+  public Triple(String subject, String predicate, String object) {
+    this(Term.of(subject), Term.of(predicate), Term.of(object));
+  }
+
+  /**
+   * Creates a triple from terms that may not have been decoded yet.
+   * @param subject (Term) the subject of the triple.
+   * @param predicate (Term) the predicate of the triple.
+   * @param object (Term) the object of the triple.
+   */
+  public Triple(Term subject, Term predicate, Term object) {
+    this.subject = subject;
+    this.predicate = predicate;
+    this.object = object;
+  }
+
+  /**
+   * Returns the subject of the triple.
+   * @return (String) the decoded subject.
+   */
+  public String subject() {
+    return subject.toString();
+  }
+
+  /**
+   * Returns the predicate of the triple.
+   * @return (String) the decoded predicate.
+   */
+  public String predicate() {
+    return predicate.toString();
+  }
+
+  /**
+   * Returns the object of the triple.
+   * @return (String) the decoded object.
+   */
+  public String object() {
+    return object.toString();
+  }
+
+  /**
+   * Returns the subject of the triple without decoding it.
+   * @return (Term) the subject.
+   */
+  Term subjectTerm() {
+    return subject;
+  }
+
+  /**
+   * Returns the predicate of the triple without decoding it.
+   * @return (Term) the predicate.
+   */
+  Term predicateTerm() {
+    return predicate;
+  }
+
+  /**
+   * Returns the object of the triple without decoding it.
+   * @return (Term) the object.
+   */
+  public Term objectTerm() {
+    return object;
+  }
+
+  /**
+   * Returns the triple as a string array.
+   * @return (String[]) an array of length 3 containing the subject, predicate and object.
+   */
+  public String[] toArray() {
+    return new String[]{subject(), predicate(), object()};
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Triple)) return false;
+    Triple triple = (Triple) other;
+    return subject.equals(triple.subject) && predicate.equals(triple.predicate) && object.equals(triple.object);
+  }
+
+  @Override
+  public int hashCode() {
+    return (subject.hashCode() * 31 + predicate.hashCode()) * 31 + object.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "Triple[subject=" + subject + ", predicate=" + predicate + ", object=" + object + "]";
+  }
+}
@@ -0,0 +1,380 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Builds the triples of a statement from its tokens, using an explicit stack for nested blank nodes and collections.
+ * A frame is pushed for every '[' and '(' and popped at the matching ']' or ')', when the blank node or collection is given
+ * its ID and its triples are created, so any depth of nesting is handled in a single pass over the tokens.
+ *
+ * The triples of a statement are passed on in three groups: first the triples of the statement itself, then the elements
+ * of its collections and finally the triples of its blank nodes, each group in the order of the IDs. IDs are handed out as
+ * the blank nodes and collections are closed, so an inner blank node or collection has a lower ID than the one around it.
+ *
+ * With a {@link TripleFilter}, the subject and predicate of the statement are checked as soon as they are known, and the
+ * objects of rejected triples are skipped over: they are not expanded or decoded, and their blank nodes and collections
+ * only take up an ID. The triples of blank nodes and collections are kept when a kept triple refers to them.
+ */
+class TripleBuilder {
+
+  private static final Term RDF_TYPE = Term.of("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+
+  private static final int STATEMENT = 0;
+  private static final int BLANK_NODE = 1;
+  private static final int COLLECTION = 2;
+
+  // what a frame expects next.
+  private static final int SUBJECT = 0;
+  private static final int PREDICATE = 1;
+  private static final int OBJECT = 2;
+  private static final int AFTER_OBJECT = 3; // ',', ';' or the end of the frame
+
+  /**
+   * A statement, blank node or collection that is being built.
+   */
+  private static class Frame {
+    private int kind;
+    private int state;
+    private Term subject;
+    private Term predicate;
+    // whether a predicate has been read, and whether the subject is a blank node with predicates of its own, as in
+    // '[ ex:p ex:o ] .', which is the only statement that needs no predicate.
+    private boolean predicateRead;
+    private boolean propertyListSubject;
+    // whether the frame belongs to a rejected triple, in which case its terms are skipped and it creates no triples.
+    private boolean discarded;
+    // for a statement, whether the filter accepts its subject, and whether it accepts the objects of the current predicate.
+    private boolean subjectAccepted;
+    private boolean keepObjects;
+    // the predicates and objects of a blank node, or the items of a collection.
+    private final ArrayList<Term> values = new ArrayList<>();
+  }
+
+  private final PrefixMap prefixes;
+
+  // selects the triples to build, or null to build all of them.
+  private TripleFilter filter = null;
+
+  // frames are reused between statements, only the first depth frames are in use.
+  private final ArrayList<Frame> stack = new ArrayList<>();
+  private int depth = 0;
+
+  private final ArrayList<Triple> statementTriples = new ArrayList<>();
+  private final ArrayList<Triple> collectionTriples = new ArrayList<>();
+  private final ArrayList<Triple> blankNodeTriples = new ArrayList<>();
+
+  private int blankId = 0;
+  private int collectionId = 0;
+
+  // counts for the statistics of the current statement.
+  private int urls;
+  private int literals;
+  private int prefixesResolved;
+
+  /**
+   * Creates a builder.
+   * @param prefixes (PrefixMap) the prefixes used to expand prefixed names, which may change between statements.
+   */
+  TripleBuilder(PrefixMap prefixes) {
+    this.prefixes = prefixes;
+  }
+
+  /**
+   * Sets the filter that selects the triples of the following statements.
+   * @param filter (TripleFilter) the filter, or null to build every triple.
+   */
+  void setFilter(TripleFilter filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * Builds the triples of a statement.
+   * @param tokens (List<Token>) the tokens of the statement without its final '.'.
+   * @param stats (ParseStats) receives the counts of the statement, or null.
+   * @return (List<Triple>) the triples of the statement, which are only valid until the next call.
+   * @throws IllegalArgumentException if the statement is not valid turtle.
+   */
+  List<Triple> build(List<Token> tokens, ParseStats stats) {
+    statementTriples.clear();
+    collectionTriples.clear();
+    blankNodeTriples.clear();
+    int firstBlankId = blankId;
+    int firstCollectionId = collectionId;
+    urls = literals = prefixesResolved = 0;
+
+    depth = 0;
+    push(STATEMENT, SUBJECT, false);
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      Frame frame = stack.get(depth - 1);
+      switch (frame.state) {
+        case SUBJECT:
+        case OBJECT:
+          if (token.type() == Token.Type.OPEN_BRACKET) push(BLANK_NODE, PREDICATE, discards(frame, TripleFilter.ObjectType.BLANK_NODE));
+          else if (token.type() == Token.Type.OPEN_PAREN) push(COLLECTION, OBJECT, discards(frame, TripleFilter.ObjectType.COLLECTION));
+          else if (token.type() == Token.Type.CLOSE_PAREN && frame.kind == COLLECTION) closeCollection();
+          else if (skips(frame)) i = skipTerm(tokens, i);
+          else i = readTerm(tokens, i, frame);
+          break;
+        case PREDICATE:
+          if (token.type() == Token.Type.SEMICOLON) break;
+          if (token.type() == Token.Type.CLOSE_BRACKET && frame.kind == BLANK_NODE) closeBlankNode();
+          else {
+            boolean skipped = frame.discarded || (frame.kind == STATEMENT && !frame.subjectAccepted);
+            frame.predicate = skipped ? null : predicate(token);
+            if (frame.kind == STATEMENT) frame.keepObjects = !skipped && (filter == null || filter.acceptsPredicate(frame.predicate.toString()));
+            frame.predicateRead = true;
+            frame.state = OBJECT;
+          }
+          break;
+        default:
+          if (token.type() == Token.Type.COMMA) frame.state = OBJECT;
+          else if (token.type() == Token.Type.SEMICOLON) frame.state = PREDICATE;
+          else if (token.type() == Token.Type.CLOSE_BRACKET && frame.kind == BLANK_NODE) closeBlankNode();
+          else throw unexpected(token);
+          break;
+      }
+    }
+    Frame statement = stack.get(0);
+    boolean missingPredicate = statement.state == PREDICATE && !statement.predicateRead && !statement.propertyListSubject;
+    if (depth != 1 || statement.state == SUBJECT || statement.state == OBJECT || missingPredicate) {
+      // roll back the IDs of an unfinished statement so that the IDs do not depend on where parsing failed.
+      blankId = firstBlankId;
+      collectionId = firstCollectionId;
+      int line = tokens.isEmpty() ? 0 : tokens.get(tokens.size() - 1).line();
+      throw new IllegalArgumentException("Incomplete statement on line " + line + ".");
+    }
+
+    if (filter != null && (!collectionTriples.isEmpty() || !blankNodeTriples.isEmpty())) keepReferencedNodes();
+    if (stats != null)
+      stats.countStatement(urls, literals, blankId - firstBlankId, collectionId - firstCollectionId, prefixesResolved,
+          statementTriples.size() + collectionTriples.size() + blankNodeTriples.size());
+    statementTriples.addAll(collectionTriples);
+    statementTriples.addAll(blankNodeTriples);
+    return statementTriples;
+  }
+
+  /**
+   * Returns the number of blank node IDs that have been handed out.
+   * @return (int) the next blank node ID.
+   */
+  int getBlankNodeCount() {
+    return blankId;
+  }
+
+  /**
+   * Returns the number of collection IDs that have been handed out.
+   * @return (int) the next collection ID.
+   */
+  int getCollectionCount() {
+    return collectionId;
+  }
+
+  private void push(int kind, int state, boolean discarded) {
+    if (depth == stack.size()) stack.add(new Frame());
+    Frame frame = stack.get(depth++);
+    frame.kind = kind;
+    frame.state = state;
+    frame.subject = null;
+    frame.predicate = null;
+    frame.predicateRead = false;
+    frame.propertyListSubject = false;
+    frame.discarded = discarded;
+    frame.subjectAccepted = true;
+    frame.keepObjects = true;
+    frame.values.clear();
+  }
+
+  /**
+   * Checks if the terms that are read next in a frame belong to a rejected triple.
+   * @param frame (Frame) the frame on top of the stack.
+   * @return (boolean) true if the terms are skipped.
+   */
+  private boolean skips(Frame frame) {
+    return frame.discarded || (frame.kind == STATEMENT && frame.state == OBJECT && !frame.keepObjects);
+  }
+
+  /**
+   * Checks if a blank node or collection that starts in a frame belongs to a rejected triple.
+   * @param frame (Frame) the frame on top of the stack.
+   * @param type (TripleFilter.ObjectType) the type of the blank node or collection.
+   * @return (boolean) true if the blank node or collection is skipped.
+   */
+  private boolean discards(Frame frame, TripleFilter.ObjectType type) {
+    return skips(frame) || (filter != null && frame.kind == STATEMENT && frame.state == OBJECT && !filter.acceptsObject(type));
+  }
+
+  /**
+   * Removes the triples of the blank nodes and collections that no kept triple refers to, directly or through other
+   * blank nodes and collections. The blank node or collection that is the subject of the statement is built in full, and
+   * is kept if the filter accepts one of its own triples, as these are not nested under a rejected triple.
+   */
+  private void keepReferencedNodes() {
+    HashSet<String> referenced = new HashSet<>();
+    for (Triple triple : statementTriples) {
+      referenced.add(triple.subject());
+      if (!triple.objectTerm().isLiteral()) referenced.add(triple.object());
+    }
+    String subject = stack.get(0).subject.toString();
+    if (!referenced.contains(subject)) {
+      for (Triple triple : blankNodeTriples)
+        if (triple.subject().equals(subject) && filter.accepts(triple)) referenced.add(subject);
+      for (Triple triple : collectionTriples)
+        if (triple.subject().equals(subject) && filter.accepts(triple)) referenced.add(subject);
+    }
+    int size;
+    do {
+      size = referenced.size();
+      for (Triple triple : collectionTriples)
+        if (referenced.contains(triple.subject()) && !triple.objectTerm().isLiteral()) referenced.add(triple.object());
+      for (Triple triple : blankNodeTriples)
+        if (referenced.contains(triple.subject()) && !triple.objectTerm().isLiteral()) referenced.add(triple.object());
+    } while (referenced.size() != size);
+    collectionTriples.removeIf(triple -> !referenced.contains(triple.subject()));
+    blankNodeTriples.removeIf(triple -> !referenced.contains(triple.subject()));
+  }
+
+  private void closeBlankNode() {
+    Frame frame = stack.get(--depth);
+    if (frame.state == OBJECT) throw new IllegalArgumentException("Missing object in blank node.");
+    Frame outer = stack.get(depth - 1);
+    if (outer.kind == STATEMENT && outer.state == SUBJECT) outer.propertyListSubject = !frame.values.isEmpty();
+    if (frame.discarded) {
+      blankId++;
+      deliver(null);
+      return;
+    }
+    Term label = Term.of("blank_node_(id=" + (blankId++) + ")");
+    for (int i = 0; i < frame.values.size(); i += 2)
+      blankNodeTriples.add(new Triple(label, frame.values.get(i), frame.values.get(i + 1)));
+    deliver(label);
+  }
+
+  private void closeCollection() {
+    Frame frame = stack.get(--depth);
+    if (frame.discarded) {
+      collectionId++;
+      deliver(null);
+      return;
+    }
+    Term label = Term.of("collection_(id=" + (collectionId++) + ")");
+    for (int i = 0; i < frame.values.size(); i++)
+      collectionTriples.add(new Triple(label, Term.of("element_(#" + (i + 1) + ")"), frame.values.get(i)));
+    deliver(label);
+  }
+
+  /**
+   * Passes a finished subject or object to the frame on top of the stack.
+   * @param value (Term) the term, or the label of a blank node or collection, or null for a term that was skipped.
+   */
+  private void deliver(Term value) {
+    Frame frame = stack.get(depth - 1);
+    if (frame.kind == COLLECTION) {
+      frame.values.add(value);
+    } else if (frame.state == SUBJECT) {
+      frame.subject = value;
+      frame.subjectAccepted = filter == null || filter.acceptsSubject(value.toString());
+      frame.state = PREDICATE;
+    } else {
+      if (frame.kind == STATEMENT) {
+        if (value != null && (filter == null || filter.acceptsObject(value))) statementTriples.add(new Triple(frame.subject, frame.predicate, value));
+      } else {
+        frame.values.add(frame.predicate);
+        frame.values.add(value);
+      }
+      frame.state = AFTER_OBJECT;
+    }
+  }
+
+  /**
+   * Reads a term, including the language tag or datatype of a literal, and passes it to the frame.
+   * @param tokens (List<Token>) the tokens of the statement.
+   * @param i (int) index of the first token of the term.
+   * @param frame (Frame) the frame on top of the stack.
+   * @return (int) index of the last token of the term.
+   */
+  private int readTerm(List<Token> tokens, int i, Frame frame) {
+    Token token = tokens.get(i);
+    switch (token.type()) {
+      case IRIREF:
+      case PREFIXED_NAME:
+        deliver(iri(token));
+        return i;
+      case LITERAL_SINGLE:
+      case LITERAL_DOUBLE:
+      case LITERAL_LONG:
+        // a literal can only be an object.
+        if (frame.state == SUBJECT) throw unexpected(token);
+        literals++;
+        // the content is not decoded here, only the short language tag or datatype is.
+        String suffix = "";
+        if (i + 1 < tokens.size() && tokens.get(i + 1).type() == Token.Type.LANGTAG) {
+          suffix = "@" + tokens.get(++i).text();
+        } else if (i + 1 < tokens.size() && tokens.get(i + 1).type() == Token.Type.DATATYPE) {
+          if (i + 2 >= tokens.size()) throw new IllegalArgumentException("Missing datatype on line " + token.line() + ".");
+          suffix = "^^" + iri(tokens.get(i += 2));
+        }
+        deliver(token.term().quoted(suffix));
+        return i;
+      default:
+        throw unexpected(token);
+    }
+  }
+
+  /**
+   * Skips a term of a rejected triple, including the language tag or datatype of a literal, without expanding or decoding it.
+   * @param tokens (List<Token>) the tokens of the statement.
+   * @param i (int) index of the first token of the term.
+   * @return (int) index of the last token of the term.
+   */
+  private int skipTerm(List<Token> tokens, int i) {
+    Token token = tokens.get(i);
+    switch (token.type()) {
+      case IRIREF:
+      case PREFIXED_NAME:
+        break;
+      case LITERAL_SINGLE:
+      case LITERAL_DOUBLE:
+      case LITERAL_LONG:
+        if (i + 1 < tokens.size() && tokens.get(i + 1).type() == Token.Type.LANGTAG) {
+          i++;
+        } else if (i + 1 < tokens.size() && tokens.get(i + 1).type() == Token.Type.DATATYPE) {
+          if (i + 2 >= tokens.size()) throw new IllegalArgumentException("Missing datatype on line " + token.line() + ".");
+          i += 2;
+        }
+        break;
+      default:
+        throw unexpected(token);
+    }
+    deliver(null);
+    return i;
+  }
+
+  private Term predicate(Token token) {
+    if (token.type() == Token.Type.PREFIXED_NAME && token.text().equals("a")) return RDF_TYPE;
+    return iri(token);
+  }
+
+  /**
+   * Converts an IRI or a prefixed name into a term. Prefixed names with an undeclared prefix, and plain values such as
+   * numbers, are kept as they are.
+   * @param token (Token) an IRIREF or PREFIXED_NAME token.
+   * @return (Term) the URL, or the text of the token.
+   */
+  private Term iri(Token token) {
+    if (token.type() == Token.Type.IRIREF) {
+      urls++;
+      return token.term();
+    }
+    if (token.type() != Token.Type.PREFIXED_NAME) throw unexpected(token);
+    String url = prefixes.expand(token.text());
+    if (url == null) return token.term();
+    prefixesResolved++;
+    return Term.of(url);
+  }
+
+  private static IllegalArgumentException unexpected(Token token) {
+    String text = token.text().isEmpty() ? token.type().name() : "'" + token.text() + "'";
+    return new IllegalArgumentException("Unexpected " + text + " on line " + token.line() + ".");
+  }
+}
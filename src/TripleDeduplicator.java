@@ -0,0 +1,109 @@
+/**
+ * Drops triples that have already been passed on, before they reach the next sink such as a {@link TripleStore} or a
+ * {@link TripleWriter}. Duplicates are common when overlapping vocabularies are merged, or when a statement is repeated
+ * in another block of the same subject.
+ *
+ * By default the deduplication is exact: the terms are encoded with a {@link TermDictionary} and a key of the three IDs
+ * is kept in a {@link LongHashSet}. When the next sink is a store, the dictionary of the store is used and the IDs are
+ * added to it directly, so the terms are only encoded once. As long as every ID fits in 21 bits, i.e. up to two million
+ * distinct terms, the three IDs are packed into a single long. A triple with a larger ID is kept in full as two longs,
+ * the subject and predicate IDs and the object ID, in a {@link LongPairHashSet}, so distinct triples never share a key.
+ *
+ * For streams that are too large to remember every triple, the deduplication can be approximate: the triples are hashed
+ * from their strings into a {@link BloomFilter} of fixed size, which drops every duplicate but also a small, chosen
+ * fraction of the triples that are new.
+ *
+ * Blank nodes and collections get a new ID every time they occur, so their triples are never duplicates of each other.
+ */
+public class TripleDeduplicator implements TripleSink {
+
+  private static final int ID_BITS = 21;
+
+  private final TripleSink next;
+  // the next sink if it is a store, which is given the IDs instead of the triple.
+  private final TripleStore store;
+
+  private final TermDictionary dictionary;
+  private final LongHashSet keys;
+  // the keys of the triples with an ID that does not fit in ID_BITS.
+  private final LongPairHashSet wideKeys;
+  private final BloomFilter filter;
+
+  private long duplicates = 0;
+
+  /**
+   * Creates a deduplicator that drops exactly the triples that have been passed on before.
+   * @param next (TripleSink) receives the triples that are new.
+   */
+  public TripleDeduplicator(TripleSink next) {
+    this.next = next;
+    this.store = next instanceof TripleStore ? (TripleStore) next : null;
+    this.dictionary = store != null ? store.getDictionary() : new TermDictionary();
+    this.keys = new LongHashSet();
+    this.wideKeys = new LongPairHashSet();
+    this.filter = null;
+  }
+
+  /**
+   * Creates a deduplicator with a fixed amount of memory that drops every duplicate, and some of the new triples.
+   * @param next (TripleSink) receives the triples that are new.
+   * @param expectedTriples (long) the number of distinct triples the filter is sized for.
+   * @param falsePositiveRate (double) the chance that a new triple is dropped while no more than the expected number have
+   * been seen, between 0 and 1.
+   */
+  public TripleDeduplicator(TripleSink next, long expectedTriples, double falsePositiveRate) {
+    this.next = next;
+    this.store = null;
+    this.dictionary = null;
+    this.keys = null;
+    this.wideKeys = null;
+    this.filter = new BloomFilter(expectedTriples, falsePositiveRate);
+  }
+
+  @Override
+  public void accept(Triple triple) {
+    if (filter != null) {
+      if (filter.add(hash(triple.subject(), triple.predicate(), triple.object()))) next.accept(triple);
+      else duplicates++;
+      return;
+    }
+    int subject = dictionary.encode(triple.subject());
+    int predicate = dictionary.encode(triple.predicate());
+    int object = dictionary.encode(triple.object());
+    if (!add(subject, predicate, object)) duplicates++;
+    else if (store != null) store.add(subject, predicate, object);
+    else next.accept(triple);
+  }
+
+  @Override
+  public void finish() {
+    next.finish();
+  }
+
+  /**
+   * Returns the number of triples that were dropped.
+   * @return (long) the number of duplicates.
+   */
+  public long getDuplicates() {
+    return duplicates;
+  }
+
+  /**
+   * Remembers the IDs of a triple. Small IDs are packed into one long, larger IDs are kept as a pair of longs.
+   * @return (boolean) true if the triple is new.
+   */
+  private boolean add(int subject, int predicate, int object) {
+    if ((subject | predicate | object) >>> ID_BITS == 0)
+      return keys.add(((long) subject << (2 * ID_BITS)) | ((long) predicate << ID_BITS) | object);
+    return wideKeys.add(((long) subject << 32) | (predicate & 0xFFFFFFFFL), object);
+  }
+
+  /**
+   * Hashes the strings of a triple into 64 bits.
+   */
+  private static long hash(String subject, String predicate, String object) {
+    long hash = LongHashSet.hash(subject);
+    hash = LongHashSet.mix(hash ^ LongHashSet.hash(predicate));
+    return LongHashSet.mix(hash ^ LongHashSet.hash(object));
+  }
+}
@@ -0,0 +1,126 @@
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Selects the triples of a parse by their predicate, the namespace of their subject and the type of their object, so that
+ * a thin slice of a large file can be extracted without building the whole graph.
+ *
+ * The filter is checked by the {@link TurtleParser} while a statement is built, right after the prefixes of its subject and
+ * predicate have been expanded. The objects of rejected triples are skipped: their prefixes are not expanded, their
+ * literals are not decoded, and their blank nodes and collections are not built, although they still take up their IDs,
+ * so the IDs of the selected triples are the same as in a full parse. The triples of a blank node or collection are kept
+ * when a selected triple refers to it, whatever their own predicates, so that every reference in the result can be resolved.
+ *
+ * Every criterion that is null accepts everything. Predicates and namespaces are full URLs, after prefix expansion.
+ */
+public class TripleFilter {
+
+  /**
+   * The types of objects.
+   */
+  public enum ObjectType {
+    IRI,          // a URL or a prefixed name
+    LITERAL,      // a literal between quotes, a number or a boolean
+    BLANK_NODE,   // a blank node, written as [ ] or with a label
+    COLLECTION    // a collection, written as ( )
+  }
+
+  private final Set<String> predicates;
+  private final String[] subjectNamespaces;
+  private final EnumSet<ObjectType> objectTypes;
+
+  /**
+   * Creates a filter.
+   * @param predicates (Collection<String>) the predicates to select, or null for all predicates.
+   * @param subjectNamespaces (Collection<String>) the URLs that the subject of a selected triple starts with, or null for all subjects.
+   * @param objectTypes (Collection<ObjectType>) the types of objects to select, or null for all types.
+   */
+  public TripleFilter(Collection<String> predicates, Collection<String> subjectNamespaces, Collection<ObjectType> objectTypes) {
+    this.predicates = predicates != null ? new HashSet<>(predicates) : null;
+    this.subjectNamespaces = subjectNamespaces != null ? subjectNamespaces.toArray(new String[0]) : null;
+    this.objectTypes = objectTypes != null ? (objectTypes.isEmpty() ? EnumSet.noneOf(ObjectType.class) : EnumSet.copyOf(objectTypes)) : null;
+  }
+
+  /**
+   * Checks a triple against all criteria.
+   * @param triple (Triple) the triple.
+   * @return (boolean) true if the triple is selected.
+   */
+  public boolean accepts(Triple triple) {
+    return acceptsPredicate(triple.predicate()) && acceptsSubject(triple.subject()) && acceptsObject(triple.objectTerm());
+  }
+
+  /**
+   * Checks the namespace of a subject.
+   * @param subject (String) the subject.
+   * @return (boolean) true if the subject starts with one of the namespaces.
+   */
+  public boolean acceptsSubject(String subject) {
+    if (subjectNamespaces == null) return true;
+    for (String namespace : subjectNamespaces)
+      if (subject.startsWith(namespace)) return true;
+    return false;
+  }
+
+  /**
+   * Checks a predicate.
+   * @param predicate (String) the predicate.
+   * @return (boolean) true if the predicate is selected.
+   */
+  public boolean acceptsPredicate(String predicate) {
+    return predicates == null || predicates.contains(predicate);
+  }
+
+  /**
+   * Checks the type of an object.
+   * @param type (ObjectType) the type.
+   * @return (boolean) true if objects of the type are selected.
+   */
+  public boolean acceptsObject(ObjectType type) {
+    return objectTypes == null || objectTypes.contains(type);
+  }
+
+  /**
+   * Checks the type of an object, without decoding it if it is a literal.
+   * @param object (Term) the object.
+   * @return (boolean) true if objects of its type are selected.
+   */
+  boolean acceptsObject(Term object) {
+    return objectTypes == null || objectTypes.contains(type(object));
+  }
+
+  /**
+   * Returns a sink that passes the selected triples on to another sink.
+   * @param next (TripleSink) receives the selected triples.
+   * @return (TripleSink) the filtering sink.
+   */
+  public TripleSink filter(TripleSink next) {
+    return new TripleSink() {
+      @Override
+      public void accept(Triple triple) {
+        if (accepts(triple)) next.accept(triple);
+      }
+
+      @Override
+      public void finish() {
+        next.finish();
+      }
+    };
+  }
+
+  /**
+   * Returns the type of an object.
+   * @param object (Term) the object.
+   * @return (ObjectType) the type.
+   */
+  static ObjectType type(Term object) {
+    if (object.isLiteral()) return ObjectType.LITERAL;
+    String text = object.toString();
+    if (text.startsWith("\"") || GraphStatistics.valueDatatype(text) != null) return ObjectType.LITERAL;
+    if (text.startsWith("blank_node_(id=") || text.startsWith("_:")) return ObjectType.BLANK_NODE;
+    if (text.startsWith("collection_(id=")) return ObjectType.COLLECTION;
+    return ObjectType.IRI;
+  }
+}
@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An immutable index over the triples of a {@link TripleStore} that finds the triples matching a pattern such as
+ * (subject, ?, ?) or (?, rdf:type, skos:Concept) without scanning all of the data.
+ *
+ * The triples are kept in three orders, SPO, POS and OSP, so that every pattern is a contiguous range of one of them.
+ * Each order is stored in compressed sparse row form: the triples are grouped by the ID of their first term, which gives
+ * the range of a first term with two array reads, and the second and third IDs of each group are packed into a long and
+ * sorted, so the range of a second term or of a whole triple is found with a binary search.
+ *
+ * The index can be read from any number of threads at once. It decodes terms with the dictionary of the store, which must
+ * not be given new terms while the index is in use.
+ */
+public class TripleIndex {
+
+  // groups that are larger than this are sorted with a parallel sort of their own.
+  private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+  // the ID of a wildcard, and of a term that is not in the data so that nothing can match it.
+  private static final int ANY = -1;
+  private static final int UNKNOWN = -2;
+
+  /**
+   * The triples in one order, grouped by their first term and sorted by their second and third terms.
+   */
+  private static final class Order {
+    // the triples with first term t are at offsets[t] until offsets[t + 1].
+    private final int[] offsets;
+    // (second << 32) | third of every triple.
+    private final long[] keys;
+
+    private Order(int[] offsets, long[] keys) {
+      this.offsets = offsets;
+      this.keys = keys;
+    }
+  }
+
+  private final TermDictionary dictionary;
+  private final int size;
+  private final Order spo;
+  private final Order pos;
+  private final Order osp;
+
+  /**
+   * Builds the index of the triples currently in a store. The three orders are built in parallel.
+   * @param store (TripleStore) the triples.
+   */
+  public TripleIndex(TripleStore store) {
+    dictionary = store.getDictionary();
+    size = store.size();
+    int terms = dictionary.size();
+    int[] subjects = new int[size];
+    int[] predicates = new int[size];
+    int[] objects = new int[size];
+    for (int i = 0; i < size; i++) {
+      subjects[i] = store.getSubject(i);
+      predicates[i] = store.getPredicate(i);
+      objects[i] = store.getObject(i);
+    }
+    CompletableFuture<Order> posFuture = CompletableFuture.supplyAsync(() -> build(predicates, objects, subjects, terms));
+    CompletableFuture<Order> ospFuture = CompletableFuture.supplyAsync(() -> build(objects, subjects, predicates, terms));
+    spo = build(subjects, predicates, objects, terms);
+    pos = posFuture.join();
+    osp = ospFuture.join();
+  }
+
+  /**
+   * Builds one order with a counting sort on the first term followed by a sort of every group.
+   * @param first (int[]) the IDs of the terms to group by.
+   * @param second (int[]) the IDs of the terms to sort by within a group.
+   * @param third (int[]) the IDs of the terms to sort by when the second terms are equal.
+   * @param terms (int) the number of terms in the dictionary.
+   * @return (Order) the order.
+   */
+  private static Order build(int[] first, int[] second, int[] third, int terms) {
+    int[] offsets = new int[terms + 1];
+    for (int id : first) offsets[id + 1]++;
+    for (int t = 0; t < terms; t++) offsets[t + 1] += offsets[t];
+
+    long[] keys = new long[first.length];
+    int[] next = Arrays.copyOf(offsets, terms);
+    for (int i = 0; i < first.length; i++) keys[next[first[i]]++] = key(second[i], third[i]);
+
+    IntStream.range(0, terms).parallel().forEach(t -> {
+      int from = offsets[t], to = offsets[t + 1];
+      if (to - from > PARALLEL_SORT_THRESHOLD) Arrays.parallelSort(keys, from, to);
+      else if (to - from > 1) Arrays.sort(keys, from, to);
+    });
+    return new Order(offsets, keys);
+  }
+
+  /**
+   * Finds the triples that match a pattern. The triples are decoded lazily as the stream is consumed.
+   * Terms are given in the form they have in the parsed data, e.g. a URL without angle brackets or a literal with its quotes.
+   * @param subject (String) the subject, or null to match any subject.
+   * @param predicate (String) the predicate, or null to match any predicate.
+   * @param object (String) the object, or null to match any object.
+   * @return (Stream<Triple>) the matching triples, sorted by the IDs of their terms in the order that was used for the lookup.
+   */
+  public Stream<Triple> match(String subject, String predicate, String object) {
+    int s = id(subject), p = id(predicate), o = id(object);
+    if (s == UNKNOWN || p == UNKNOWN || o == UNKNOWN) return Stream.empty();
+
+    if (s >= 0) {
+      if (p < 0 && o >= 0) return range(osp, o, s, -1).mapToObj(i -> triple(s, third(osp, i), o));
+      return range(spo, s, p, o).mapToObj(i -> triple(s, second(spo, i), third(spo, i)));
+    }
+    if (p >= 0) return range(pos, p, o, -1).mapToObj(i -> triple(third(pos, i), p, second(pos, i)));
+    if (o >= 0) return range(osp, o, -1, -1).mapToObj(i -> triple(second(osp, i), third(osp, i), o));
+    return IntStream.range(0, spo.offsets.length - 1).boxed()
+        .flatMap(t -> range(spo, t, -1, -1).mapToObj(i -> triple(t, second(spo, i), third(spo, i))));
+  }
+
+  /**
+   * Counts the triples that match a pattern without decoding them.
+   * @param subject (String) the subject, or null to match any subject.
+   * @param predicate (String) the predicate, or null to match any predicate.
+   * @param object (String) the object, or null to match any object.
+   * @return (int) the number of matching triples.
+   */
+  public int count(String subject, String predicate, String object) {
+    int s = id(subject), p = id(predicate), o = id(object);
+    if (s == UNKNOWN || p == UNKNOWN || o == UNKNOWN) return 0;
+
+    if (s >= 0) {
+      if (p < 0 && o >= 0) return (int) range(osp, o, s, -1).count();
+      return (int) range(spo, s, p, o).count();
+    }
+    if (p >= 0) return (int) range(pos, p, o, -1).count();
+    if (o >= 0) return (int) range(osp, o, -1, -1).count();
+    return size;
+  }
+
+  /**
+   * Returns the number of triples in the index.
+   * @return (int) the number of triples.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Looks up the ID of a term of a pattern.
+   * @param term (String) the term, or null for a wildcard.
+   * @return (int) the ID, ANY for a wildcard or UNKNOWN if the term is not in the index.
+   */
+  private int id(String term) {
+    if (term == null) return ANY;
+    int id = dictionary.lookup(term);
+    // terms added to the dictionary after the index was built are not in the index.
+    return id >= 0 && id < spo.offsets.length - 1 ? id : UNKNOWN;
+  }
+
+  /**
+   * Finds the positions of the triples in an order that have a first term and optionally a second and third term.
+   * @param order (Order) the order to search.
+   * @param first (int) ID of the first term.
+   * @param second (int) ID of the second term, or -1 to match any.
+   * @param third (int) ID of the third term, or -1 to match any. Only used if the second term is given.
+   * @return (IntStream) the positions in the keys of the order.
+   */
+  private static IntStream range(Order order, int first, int second, int third) {
+    int from = order.offsets[first], to = order.offsets[first + 1];
+    if (second >= 0) {
+      long low = third >= 0 ? key(second, third) : key(second, 0);
+      long high = third >= 0 ? low + 1 : key(second + 1, 0);
+      int start = lowerBound(order.keys, from, to, low);
+      to = lowerBound(order.keys, start, to, high);
+      from = start;
+    }
+    return IntStream.range(from, to);
+  }
+
+  /**
+   * Finds the first key that is not smaller than a value.
+   * @param keys (long[]) the keys, sorted between from and to.
+   * @param from (int) the start of the sorted range.
+   * @param to (int) the end of the sorted range.
+   * @param value (long) the value to search for.
+   * @return (int) the index of the first key that is greater than or equal to the value, or to if there is none.
+   */
+  private static int lowerBound(long[] keys, int from, int to, long value) {
+    while (from < to) {
+      int middle = (from + to) >>> 1;
+      if (keys[middle] < value) from = middle + 1;
+      else to = middle;
+    }
+    return from;
+  }
+
+  private static long key(int second, int third) {
+    return ((long) second << 32) | (third & 0xFFFFFFFFL);
+  }
+
+  private static int second(Order order, int index) {
+    return (int) (order.keys[index] >>> 32);
+  }
+
+  private static int third(Order order, int index) {
+    return (int) order.keys[index];
+  }
+
+  private Triple triple(int subject, int predicate, int object) {
+    return new Triple(dictionary.decode(subject), dictionary.decode(predicate), dictionary.decode(object));
+  }
+}
@@ -0,0 +1,18 @@
+/**
+ * Receives triples from the {@link TurtleParser} as soon as they have been parsed.
+ */
+@FunctionalInterface
+public interface TripleSink {
+
+  /**
+   * Called once for every triple, in the order the triples are parsed.
+   * @param triple (Triple) the processed triple.
+   */
+  void accept(Triple triple);
+
+  /**
+   * Called once after the last triple has been passed to the sink.
+   */
+  default void finish() {
+  }
+}
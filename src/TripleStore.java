@@ -0,0 +1,171 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores triples as three parallel columns of term IDs from a {@link TermDictionary}.
+ * Every distinct term is stored once, so a triple costs 12 bytes no matter how long its terms are,
+ * and triples can be compared, grouped and sorted by their IDs without looking at the strings.
+ * The strings are only decoded when a triple is requested through {@link #get(int)} or {@link #asList()}.
+ */
+public class TripleStore implements TripleSink {
+
+  private final TermDictionary dictionary;
+
+  private int[] subjects = new int[1024];
+  private int[] predicates = new int[1024];
+  private int[] objects = new int[1024];
+  private int size = 0;
+  // whether changes are rejected, see makeReadOnly().
+  private boolean readOnly = false;
+
+  /**
+   * Creates an empty store with its own dictionary.
+   */
+  public TripleStore() {
+    this(new TermDictionary());
+  }
+
+  /**
+   * Creates an empty store that encodes its terms with an existing dictionary.
+   * @param dictionary (TermDictionary) the dictionary used to encode the terms.
+   */
+  public TripleStore(TermDictionary dictionary) {
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Adds a triple, encoding its terms with the dictionary of the store.
+   * @param triple (Triple) the triple to add.
+   * @throws UnsupportedOperationException if the store is read-only.
+   */
+  @Override
+  public void accept(Triple triple) {
+    checkWritable();
+    add(dictionary.encode(triple.subject()), dictionary.encode(triple.predicate()), dictionary.encode(triple.object()));
+  }
+
+  /**
+   * Adds a triple of term IDs.
+   * @param subject (int) ID of the subject.
+   * @param predicate (int) ID of the predicate.
+   * @param object (int) ID of the object.
+   * @throws UnsupportedOperationException if the store is read-only.
+   */
+  public void add(int subject, int predicate, int object) {
+    checkWritable();
+    if (size == subjects.length) {
+      int capacity = Math.max(16, size + (size >> 1));
+      subjects = Arrays.copyOf(subjects, capacity);
+      predicates = Arrays.copyOf(predicates, capacity);
+      objects = Arrays.copyOf(objects, capacity);
+    }
+    subjects[size] = subject;
+    predicates[size] = predicate;
+    objects[size] = object;
+    size++;
+  }
+
+  /**
+   * Returns the number of triples in the store.
+   * @return (int) the number of triples.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the ID of the subject of a triple.
+   * @param index (int) index of the triple.
+   * @return (int) the term ID.
+   */
+  public int getSubject(int index) {
+    checkIndex(index);
+    return subjects[index];
+  }
+
+  /**
+   * Returns the ID of the predicate of a triple.
+   * @param index (int) index of the triple.
+   * @return (int) the term ID.
+   */
+  public int getPredicate(int index) {
+    checkIndex(index);
+    return predicates[index];
+  }
+
+  /**
+   * Returns the ID of the object of a triple.
+   * @param index (int) index of the triple.
+   * @return (int) the term ID.
+   */
+  public int getObject(int index) {
+    checkIndex(index);
+    return objects[index];
+  }
+
+  /**
+   * Returns the dictionary used to encode the terms of the store.
+   * @return (TermDictionary) the dictionary.
+   */
+  public TermDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Decodes a triple.
+   * @param index (int) index of the triple.
+   * @return (String[]) an array of length 3 containing the subject, predicate and object.
+   */
+  public String[] get(int index) {
+    checkIndex(index);
+    return new String[]{dictionary.decode(subjects[index]), dictionary.decode(predicates[index]), dictionary.decode(objects[index])};
+  }
+
+  /**
+   * Returns a read-only view of the store in which each triple is decoded when it is accessed.
+   * @return (List<String[]>) the triples as string arrays of length 3.
+   */
+  public List<String[]> asList() {
+    return new AbstractList<>() {
+      @Override
+      public String[] get(int index) {
+        return TripleStore.this.get(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Shrinks the columns to the number of triples in the store.
+   * @throws UnsupportedOperationException if the store is read-only.
+   */
+  public void trimToSize() {
+    checkWritable();
+    subjects = Arrays.copyOf(subjects, size);
+    predicates = Arrays.copyOf(predicates, size);
+    objects = Arrays.copyOf(objects, size);
+  }
+
+  /**
+   * Makes the store and its dictionary read-only, so that they can be shared by threads that only read from them.
+   * The columns are trimmed first, as they can no longer grow.
+   */
+  void makeReadOnly() {
+    if (!readOnly) trimToSize();
+    readOnly = true;
+    dictionary.makeReadOnly();
+  }
+
+  private void checkWritable() {
+    if (readOnly) throw new UnsupportedOperationException("The triple store is read-only.");
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size + ".");
+  }
+}
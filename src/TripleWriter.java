@@ -0,0 +1,226 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Serializes triples into a reusable byte buffer that is written to an {@link OutputStream} whenever it is full.
+ * Terms are encoded to UTF-8 straight into the buffer, so writing a triple does not create any temporary strings.
+ * A {@link java.nio.channels.WritableByteChannel} can be written to through {@link java.nio.channels.Channels#newOutputStream},
+ * which passes the buffer to the channel without copying it.
+ * A writer is also a {@link TripleSink}, so the triples of a parse can be written as they are produced.
+ */
+public abstract class TripleWriter implements TripleSink, Flushable, Closeable {
+
+  // size of the output buffer.
+  static final int BUFFER_SIZE = 64 << 10;
+
+  private final OutputStream out;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position = 0;
+
+  private boolean started = false;
+  private boolean finished = false;
+
+  /**
+   * Creates a writer.
+   * @param out (OutputStream) the destination of the serialized triples.
+   */
+  protected TripleWriter(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes a single triple.
+   * @param subject (String) the subject.
+   * @param predicate (String) the predicate.
+   * @param object (String) the object.
+   * @throws IOException if the output cannot be written.
+   */
+  public void write(String subject, String predicate, String object) throws IOException {
+    start();
+    writeTriple(subject, predicate, object);
+  }
+
+  /**
+   * Writes every triple of a store, decoding the term IDs without creating an array per triple.
+   * @param store (TripleStore) the triples to write.
+   * @throws IOException if the output cannot be written.
+   */
+  public void write(TripleStore store) throws IOException {
+    start();
+    TermDictionary dictionary = store.getDictionary();
+    for (int i = 0; i < store.size(); i++)
+      writeTriple(dictionary.decode(store.getSubject(i)), dictionary.decode(store.getPredicate(i)), dictionary.decode(store.getObject(i)));
+  }
+
+  /**
+   * Writes a triple received from a parser.
+   * @param triple (Triple) the triple to write.
+   */
+  @Override
+  public void accept(Triple triple) {
+    try {
+      write(triple.subject(), triple.predicate(), triple.object());
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Ends the output and writes everything that is still buffered, without closing the output stream.
+   * Nothing can be written after the output has ended.
+   */
+  @Override
+  public void finish() {
+    try {
+      if (!finished) {
+        start();
+        writeFooter();
+        finished = true;
+      }
+      flush();
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Writes everything that is buffered to the output stream.
+   * @throws IOException if the output cannot be written.
+   */
+  @Override
+  public void flush() throws IOException {
+    drain();
+    out.flush();
+  }
+
+  /**
+   * Ends the output and closes the output stream.
+   * @throws IOException if the output cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } catch (UncheckedIOException err) {
+      throw err.getCause();
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Serializes a single triple into the buffer.
+   * @param subject (String) the subject.
+   * @param predicate (String) the predicate.
+   * @param object (String) the object.
+   * @throws IOException if the output cannot be written.
+   */
+  protected abstract void writeTriple(String subject, String predicate, String object) throws IOException;
+
+  /**
+   * Writes anything that comes before the first triple, such as a header. Does nothing by default.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writeHeader() throws IOException {
+  }
+
+  /**
+   * Writes anything that comes after the last triple. Does nothing by default.
+   * @throws IOException if the output cannot be written.
+   */
+  protected void writeFooter() throws IOException {
+  }
+
+  /**
+   * Writes a single ASCII character.
+   * @param c (char) the character.
+   * @throws IOException if the output cannot be written.
+   */
+  protected final void write(char c) throws IOException {
+    if (position == buffer.length) drain();
+    buffer[position++] = (byte) c;
+  }
+
+  /**
+   * Writes bytes that have already been encoded, such as constant punctuation.
+   * @param bytes (byte[]) the bytes.
+   * @throws IOException if the output cannot be written.
+   */
+  protected final void write(byte[] bytes) throws IOException {
+    if (buffer.length - position < bytes.length) {
+      drain();
+      if (bytes.length > buffer.length) {
+        out.write(bytes);
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  /**
+   * Encodes a string into the buffer as UTF-8.
+   * @param s (String) the string.
+   * @throws IOException if the output cannot be written.
+   */
+  protected final void write(String s) throws IOException {
+    write(s, 0, s.length());
+  }
+
+  /**
+   * Encodes part of a string into the buffer as UTF-8.
+   * Unpaired surrogates are written as '?', as {@link String#getBytes} does.
+   * @param s (String) the string.
+   * @param from (int) index of the first character to write.
+   * @param to (int) index after the last character to write.
+   * @throws IOException if the output cannot be written.
+   */
+  protected final void write(String s, int from, int to) throws IOException {
+    int i = from;
+    while (i < to) {
+      if (buffer.length - position < 4) drain();
+      // a char never takes more than 3 bytes, and a surrogate pair 4 bytes, so this many fit without checking the space left.
+      int end = Math.min(to, i + (buffer.length - position - 1) / 3);
+      for (; i < end; i++) {
+        char c = s.charAt(i);
+        if (c < 0x80) {
+          buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+          buffer[position++] = (byte) (0xC0 | (c >> 6));
+          buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+          if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, s.charAt(++i));
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+          } else {
+            buffer[position++] = '?';
+          }
+        } else {
+          buffer[position++] = (byte) (0xE0 | (c >> 12));
+          buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+    }
+  }
+
+  private void start() throws IOException {
+    if (finished) throw new IllegalStateException("The output has already ended.");
+    if (!started) {
+      started = true;
+      writeHeader();
+    }
+  }
+
+  private void drain() throws IOException {
+    if (position == 0) return;
+    out.write(buffer, 0, position);
+    position = 0;
+  }
+}
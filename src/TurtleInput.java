@@ -0,0 +1,236 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Supplies raw UTF-8 bytes to the {@link TurtleLexer} through a window that is refilled on demand.
+ * Large files are memory-mapped so that they are read at the speed of the page cache without being copied onto the heap.
+ * Smaller files and streams such as stdin are read through direct buffers that are pooled and reused between parses.
+ * Neither path ever holds a decoded copy of the whole input.
+ */
+public abstract class TurtleInput implements Closeable {
+
+  // files of at least this size are memory-mapped.
+  static final long MAP_THRESHOLD = 4L << 20;
+
+  // size of a single mapping, large files are mapped one window at a time.
+  static final long MAP_WINDOW = 1L << 30;
+
+  // size of the pooled direct buffers.
+  static final int BUFFER_SIZE = 64 << 10;
+
+  private static final ConcurrentLinkedQueue<ByteBuffer> BUFFER_POOL = new ConcurrentLinkedQueue<>();
+
+  protected ByteBuffer buffer;
+
+  // offset in the input of the first byte in the buffer.
+  protected long bufferOffset = 0;
+
+  /**
+   * Opens a file, memory-mapping it if it is large.
+   * @param path (Path) the file to read.
+   * @return (TurtleInput) the input, which must be closed after use.
+   * @throws IOException if the file cannot be opened.
+   */
+  public static TurtleInput open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    if (channel.size() >= MAP_THRESHOLD) return new MappedInput(channel, 0, channel.size(), true);
+    return new ChannelInput(channel);
+  }
+
+  /**
+   * Memory-maps a region of a file that is already open, such as one chunk of a file that is parsed in parallel.
+   * @param channel (FileChannel) the file, which stays open when the input is closed.
+   * @param start (long) offset of the first byte of the region.
+   * @param end (long) offset after the last byte of the region.
+   * @return (TurtleInput) the input.
+   * @throws IOException if the file cannot be mapped.
+   */
+  public static TurtleInput open(FileChannel channel, long start, long end) throws IOException {
+    return new MappedInput(channel, start, end, false);
+  }
+
+  /**
+   * Reads from a channel, such as stdin, through a pooled direct buffer.
+   * @param channel (ReadableByteChannel) the source of the data, which is closed together with the input.
+   * @return (TurtleInput) the input, which must be closed after use.
+   */
+  public static TurtleInput of(ReadableByteChannel channel) {
+    return new ChannelInput(channel);
+  }
+
+  /**
+   * Reads from data that is already in memory.
+   * @param data (ByteBuffer) the data from its position up to its limit.
+   * @return (TurtleInput) the input.
+   */
+  public static TurtleInput of(ByteBuffer data) {
+    return new BufferInput(data);
+  }
+
+  /**
+   * Returns the current window of the input.
+   * The readable bytes of the window are those from index 0 up to its limit.
+   * @return (ByteBuffer) the current window.
+   */
+  public ByteBuffer buffer() {
+    return buffer;
+  }
+
+  /**
+   * Converts an index in the current window into an offset in the input.
+   * @param index (int) index in the current window.
+   * @return (long) the number of bytes in the input before the index.
+   */
+  public long offset(int index) {
+    return bufferOffset + index;
+  }
+
+  /**
+   * Discards the bytes before an index in the current window and makes more bytes available after them.
+   * After the call the byte that was at index keepFrom is at index 0 of the window, even if no more bytes were available.
+   * @param keepFrom (int) index of the first byte that must remain available.
+   * @return (boolean) true if more bytes are available, false if the end of the input has been reached.
+   * @throws IOException if the input cannot be read.
+   */
+  public abstract boolean refill(int keepFrom) throws IOException;
+
+  /**
+   * Checks if the bytes of a window stay unchanged after the input has moved on to another window, so that the lexer may
+   * keep slices of them instead of copying them.
+   * @return (boolean) true if the bytes are never overwritten.
+   */
+  public boolean isStable() {
+    return false;
+  }
+
+  /**
+   * Moves the start of the window to an index without reading more bytes.
+   * @param keepFrom (int) index of the first byte that must remain available.
+   */
+  protected void discard(int keepFrom) {
+    buffer = buffer.slice(keepFrom, buffer.limit() - keepFrom);
+    bufferOffset += keepFrom;
+  }
+
+  /**
+   * Memory-maps a region of a file one window at a time.
+   */
+  private static class MappedInput extends TurtleInput {
+
+    private final FileChannel channel;
+    private final long end;
+    private final boolean ownsChannel;
+
+    MappedInput(FileChannel channel, long start, long end, boolean ownsChannel) throws IOException {
+      this.channel = channel;
+      this.end = end;
+      this.ownsChannel = ownsChannel;
+      map(start);
+    }
+
+    @Override
+    public boolean refill(int keepFrom) throws IOException {
+      if (bufferOffset + buffer.limit() >= end) {
+        discard(keepFrom);
+        return false;
+      }
+      map(bufferOffset + keepFrom);
+      return true;
+    }
+
+    @Override
+    public boolean isStable() {
+      // every refill maps a new window and the file is mapped read-only.
+      return true;
+    }
+
+    private void map(long offset) throws IOException {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(end - offset, MAP_WINDOW));
+      bufferOffset = offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (ownsChannel) channel.close();
+    }
+  }
+
+  /**
+   * Streams a channel through a pooled direct buffer.
+   */
+  private static class ChannelInput extends TurtleInput {
+
+    private final ReadableByteChannel channel;
+    private boolean endOfInput = false;
+
+    ChannelInput(ReadableByteChannel channel) {
+      this.channel = channel;
+      ByteBuffer pooled = BUFFER_POOL.poll();
+      buffer = pooled != null ? pooled : ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.clear().limit(0);
+    }
+
+    @Override
+    public boolean refill(int keepFrom) throws IOException {
+      if (endOfInput) {
+        // compact in place rather than slicing, so that the buffer can still be returned to the pool.
+        buffer.position(keepFrom);
+        buffer.compact().flip();
+        bufferOffset += keepFrom;
+        return false;
+      }
+      buffer.position(keepFrom);
+      bufferOffset += keepFrom;
+      if (keepFrom == 0 && buffer.limit() == buffer.capacity()) {
+        // the bytes that must be kept fill the whole buffer, so it has to grow.
+        ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+        larger.put(buffer);
+        buffer = larger;
+      } else {
+        buffer.compact();
+      }
+      int kept = buffer.position();
+      while (buffer.position() == kept) {
+        if (channel.read(buffer) < 0) {
+          endOfInput = true;
+          break;
+        }
+      }
+      buffer.flip();
+      return buffer.limit() > kept;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (buffer.capacity() == BUFFER_SIZE) BUFFER_POOL.offer(buffer);
+      buffer = ByteBuffer.allocate(0);
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads from a buffer that already contains all of the data.
+   */
+  private static class BufferInput extends TurtleInput {
+
+    BufferInput(ByteBuffer data) {
+      buffer = data.slice();
+    }
+
+    @Override
+    public boolean refill(int keepFrom) {
+      discard(keepFrom);
+      return false;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,359 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single-pass tokenizer for Turtle data.
+ * The input is read once, byte by byte, and split into typed {@link Token}s.
+ * Every character that has a meaning in the Turtle syntax is plain ASCII, so the UTF-8 input does not have to be decoded up front.
+ * Names are decoded once the end of the token has been found, while IRIs and literals become {@link Term}s over their raw
+ * bytes that are only decoded, escapes included, when they are read.
+ * The bytes are read through the window of a {@link TurtleInput}, which is refilled whenever the lexer reaches its end,
+ * so the position in the input is tracked by the lexer rather than by markers in the text.
+ */
+public class TurtleLexer {
+
+  private final TurtleInput source;
+  private ByteBuffer input;
+  private int limit;
+  private int position;
+  private int line = 1;
+
+  // index of the first byte of the IRI or literal being read, which is kept in the window when it is refilled, or -1.
+  private int mark = -1;
+
+  // reusable buffer for the content of the token that is currently being read.
+  private byte[] scratch = new byte[256];
+  private int scratchLength = 0;
+
+  /**
+   * Creates a lexer over UTF-8 encoded Turtle data.
+   * @param source (TurtleInput) the source of the data.
+   */
+  public TurtleLexer(TurtleInput source) {
+    this(source, 1);
+  }
+
+  /**
+   * Creates a lexer over UTF-8 encoded Turtle data that continues earlier data, so that its line numbers follow on.
+   * @param source (TurtleInput) the source of the data.
+   * @param firstLine (int) the line number of the first byte of the data.
+   */
+  public TurtleLexer(TurtleInput source, int firstLine) {
+    this.source = source;
+    this.input = source.buffer();
+    this.position = 0;
+    this.limit = input.limit();
+    this.line = firstLine;
+  }
+
+  /**
+   * Creates a lexer over UTF-8 encoded Turtle data that is already in memory.
+   * @param input (ByteBuffer) the data from its position up to its limit is tokenized.
+   */
+  public TurtleLexer(ByteBuffer input) {
+    this(TurtleInput.of(input));
+  }
+
+  /**
+   * Reads the next token.
+   * @return (Token) the next token, or a token of type EOF when the input is exhausted.
+   */
+  public Token next() {
+    skipWhiteSpaceAndComments();
+    if (!available(0)) return new Token(Token.Type.EOF, "", line);
+
+    int startLine = line;
+    byte c = input.get(position);
+    switch (c) {
+      case '<':
+        return readIRI();
+      case '"':
+        if (peek(1) == '"' && peek(2) == '"') return readLongLiteral();
+        return readLiteral('"', Token.Type.LITERAL_DOUBLE);
+      case '\'':
+        return readLiteral('\'', Token.Type.LITERAL_SINGLE);
+      case '[':
+        position++;
+        return new Token(Token.Type.OPEN_BRACKET, "", startLine);
+      case ']':
+        position++;
+        return new Token(Token.Type.CLOSE_BRACKET, "", startLine);
+      case '(':
+        position++;
+        return new Token(Token.Type.OPEN_PAREN, "", startLine);
+      case ')':
+        position++;
+        return new Token(Token.Type.CLOSE_PAREN, "", startLine);
+      case ';':
+        position++;
+        return new Token(Token.Type.SEMICOLON, "", startLine);
+      case ',':
+        position++;
+        return new Token(Token.Type.COMMA, "", startLine);
+      case '@':
+        return readDirectiveOrLanguage();
+      case '^':
+        if (peek(1) == '^') {
+          position += 2;
+          return new Token(Token.Type.DATATYPE, "", startLine);
+        }
+        return readName();
+      case '.':
+        if (!continuesName(peek(1))) {
+          position++;
+          return new Token(Token.Type.DOT, "", startLine);
+        }
+        return readName();
+      default:
+        return readName();
+    }
+  }
+
+  /**
+   * Returns the line the lexer is currently on.
+   * @return (int) the current line, counting from 1.
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Returns the position of the lexer in the input.
+   * @return (long) the number of bytes that have been consumed.
+   */
+  public long getOffset() {
+    return source.offset(position);
+  }
+
+  /**
+   * Skips whitespace and comments, keeping track of the line count.
+   */
+  private void skipWhiteSpaceAndComments() {
+    while (available(0)) {
+      byte c = input.get(position);
+      if (c == '\n') {
+        line++;
+        position++;
+      } else if (isWhiteSpace(c)) {
+        position++;
+      } else if (c == '#') {
+        while (available(0) && input.get(position) != '\n') position++;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Reads an IRI enclosed within &lt;...&gt;.
+   * @return (Token) the IRI without the angle brackets.
+   */
+  private Token readIRI() {
+    int startLine = line;
+    position++;
+    mark = position;
+    while (available(0) && input.get(position) != '>') {
+      if (input.get(position) == '\n') line++;
+      position++;
+    }
+    if (!available(0)) throw unterminated("IRI", startLine);
+    Term term = slice(false);
+    position++;
+    return new Token(Token.Type.IRIREF, term, startLine);
+  }
+
+  /**
+   * Reads a literal enclosed within '...' or "...".
+   * @param quote (char) the quote character that opened the literal.
+   * @param type (Token.Type) the type of token to return.
+   * @return (Token) the literal content without the quotes.
+   */
+  private Token readLiteral(char quote, Token.Type type) {
+    int startLine = line;
+    position++;
+    mark = position;
+    while (available(0) && input.get(position) != quote) skipLiteralCharacter();
+    if (!available(0)) throw unterminated("literal", startLine);
+    Term term = slice(true);
+    position++;
+    return new Token(type, term, startLine);
+  }
+
+  /**
+   * Reads a literal enclosed within """...""".
+   * A run of more than three quotes at the end of the literal belongs to its content.
+   * @return (Token) the literal content without the quotes.
+   */
+  private Token readLongLiteral() {
+    int startLine = line;
+    position += 3;
+    mark = position;
+    while (available(0)) {
+      if (input.get(position) == '"' && peek(1) == '"' && peek(2) == '"') {
+        int run = 3;
+        while (peek(run) == '"') run++;
+        position += run - 3;
+        Term term = slice(true);
+        position += 3;
+        return new Token(Token.Type.LITERAL_LONG, term, startLine);
+      }
+      skipLiteralCharacter();
+    }
+    throw unterminated("literal", startLine);
+  }
+
+  /**
+   * Moves past the next character of a literal, or past an escape sequence as a whole so that an escaped quote does not end it.
+   */
+  private void skipLiteralCharacter() {
+    byte c = input.get(position);
+    if (c == '\\' && available(1)) {
+      if (input.get(position + 1) == '\n') line++;
+      position += 2;
+    } else {
+      if (c == '\n') line++;
+      position++;
+    }
+  }
+
+  /**
+   * Ends the IRI or literal that started at the mark.
+   * The term is a slice of the window if the input never overwrites it, and a copy of the raw bytes otherwise.
+   * @param literal (boolean) true for the content of a literal, false for an IRI.
+   * @return (Term) the term from the mark up to the current position, which is not decoded yet.
+   */
+  private Term slice(boolean literal) {
+    int start = mark;
+    int length = position - start;
+    mark = -1;
+    ByteBuffer bytes = input;
+    if (!source.isStable()) {
+      byte[] copy = new byte[length];
+      input.get(start, copy);
+      bytes = ByteBuffer.wrap(copy);
+      start = 0;
+    }
+    return literal ? Term.literal(bytes, start, length) : Term.iri(bytes, start, length);
+  }
+
+  private IllegalArgumentException unterminated(String what, int startLine) {
+    mark = -1;
+    return new IllegalArgumentException("Unterminated " + what + " on line " + startLine + ".");
+  }
+
+  /**
+   * Reads a directive (@prefix, @base) or a language tag (@en).
+   * @return (Token) the directive, or the language tag without the '@'.
+   */
+  private Token readDirectiveOrLanguage() {
+    int startLine = line;
+    position++;
+    scratchLength = 0;
+    while (available(0) && (isLetterOrDigit(input.get(position)) || input.get(position) == '-')) append(input.get(position++));
+    String text = scratchText();
+    if (text.equals("prefix")) return new Token(Token.Type.PREFIX, "", startLine);
+    if (text.equals("base")) return new Token(Token.Type.BASE, "", startLine);
+    return new Token(Token.Type.LANGTAG, text, startLine);
+  }
+
+  /**
+   * Reads a bare term such as a prefixed name, the keyword 'a', a number or a boolean.
+   * A '.' is only part of the name if it is followed by another name character, so a statement may end directly after a name.
+   * @return (Token) the name.
+   */
+  private Token readName() {
+    int startLine = line;
+    scratchLength = 0;
+    while (available(0)) {
+      byte c = input.get(position);
+      if (c == '.') {
+        if (!continuesName(peek(1))) break;
+      } else if (!isNameCharacter(c)) break;
+      append(c);
+      position++;
+    }
+    if (scratchLength == 0) append(input.get(position++)); // a stray character that cannot start any token
+    return new Token(Token.Type.PREFIXED_NAME, scratchText(), startLine);
+  }
+
+  private byte peek(int offset) {
+    return available(offset) ? input.get(position + offset) : 0;
+  }
+
+  /**
+   * Checks if a byte is available, refilling the window of the input if the byte lies beyond it.
+   * The bytes of the token that is being read are kept from its mark on, so that a slice of them can be taken at its end.
+   * @param offset (int) the distance of the byte from the current position.
+   * @return (boolean) true if the byte can be read, false if it lies beyond the end of the input.
+   */
+  private boolean available(int offset) {
+    while (position + offset >= limit) {
+      int keep = mark >= 0 ? mark : position;
+      int kept = limit - keep;
+      boolean refilled;
+      try {
+        refilled = source.refill(keep);
+      } catch (IOException err) {
+        throw new UncheckedIOException(err);
+      }
+      input = source.buffer();
+      position -= keep;
+      if (mark >= 0) mark = 0;
+      limit = input.limit();
+      if (!refilled) return false;
+      // only a single IRI or literal longer than a whole mapped window can fail to make room.
+      if (limit == kept) throw new IllegalArgumentException("Term too long on line " + line + ".");
+    }
+    return true;
+  }
+
+  private void append(byte c) {
+    if (scratchLength == scratch.length) {
+      byte[] larger = new byte[scratch.length * 2];
+      System.arraycopy(scratch, 0, larger, 0, scratchLength);
+      scratch = larger;
+    }
+    scratch[scratchLength++] = c;
+  }
+
+  private String scratchText() {
+    return new String(scratch, 0, scratchLength, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Checks if a byte is whitespace between tokens. Also used by the {@link StatementSplitter} and {@link Term}, which must
+   * agree with the lexer on where tokens and statements end.
+   * @param c (byte) the byte.
+   * @return (boolean) true for a space, tab, line break, form feed or vertical tab.
+   */
+  static boolean isWhiteSpace(byte c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+  }
+
+  private static boolean isLetterOrDigit(byte c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
+
+  private static boolean isNameCharacter(byte c) {
+    if (c == 0 || isWhiteSpace(c)) return false;
+    switch (c) {
+      case '<': case '>': case '"': case '\'': case '[': case ']': case '(': case ')':
+      case ';': case ',': case '#':
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Checks if a byte after a '.' makes the '.' part of a name, as in 'ex:1.2', rather than the end of a statement.
+   * @param c (byte) the byte after the '.'.
+   * @return (boolean) true if the byte can continue a name.
+   */
+  static boolean continuesName(byte c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c < 0
+        || c == '_' || c == '-' || c == ':' || c == '%' || c == '\\' || c == '.';
+  }
+}
@@ -1,10 +1,12 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
-import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A Java program for converting standard RDF Turtle data into a simplified triple format.
@@ -17,592 +19,507 @@ import java.util.ArrayList;
  */
 public class TurtleParser {
 
-  // contains data of the form [subject, predicate, object]
-  private final ArrayList<String[]> TRIPLE_STORE = new ArrayList<>();
+  // contains data of the form [subject, predicate, object], encoded as term IDs.
+  private final TripleStore TRIPLE_STORE = new TripleStore();
 
-  private final ArrayList<String> URLs = new ArrayList<>();
+  // the tokens of the statement that is currently being processed.
+  private final ArrayList<Token> STATEMENT_TOKENS = new ArrayList<>();
 
-  // literals are seperated because they could be nested.
-  private final ArrayList<String> LITERALS1 = new ArrayList<>(); // For strings enclosed within '...'
-  private final ArrayList<String> LITERALS2 = new ArrayList<>(); // For strings enclosed within "..."
-  private final ArrayList<String> LITERALS3 = new ArrayList<>(); // For strings enclosed within """..."""
-  
-  private final ArrayList<String> BLANK_NODES = new ArrayList<>();
-  private final ArrayList<String> COLLECTIONS = new ArrayList<>();
+  // the '[' and '(' tokens of the current statement that have not been closed yet.
+  private final ArrayDeque<Token> OPEN_TOKENS = new ArrayDeque<>();
 
-  // TODO: convert to singular data structure like a hash table.
-  private final ArrayList<String> prefixes = new ArrayList<>();
-  private final ArrayList<String> prefixURLs = new ArrayList<>();
+  // the prefixes declared so far, including the base which has an empty label.
+  private final PrefixMap PREFIX_MAP = new PrefixMap();
 
-  private String PREFIX = ":";
-  private String PREFIX_URL = "http://www.example-domain.org#";
+  // turns the tokens of a statement into triples and hands out the blank node and collection IDs.
+  private final TripleBuilder TRIPLE_BUILDER = new TripleBuilder(PREFIX_MAP);
 
-  private int COLLECTION_ID = 0;
-  private int BLANK_ID = 0;
+  // the first base URL declared in the data, which is used as the prefix of blank node and collection IDs in the output.
+  private String BASE_URL = null;
+  private static final String EXAMPLE_BASE_URL = "http://www.example-domain.org#";
+
+  // records the cost of each processing phase when statistics are requested, null otherwise.
+  private ParseStats PARSE_STATS = null;
+
+  // the number of duplicate triples that were dropped when deduplication was requested.
+  private long DUPLICATE_COUNT = 0;
+
+  // the profile of the stored triples when it was requested, null otherwise.
+  private GraphStatistics GRAPH_STATISTICS = null;
 
   /**
    * Creates an instance of the turtle parser.
    * @param fileName name of the file containing the turtle data.
    */
   public TurtleParser(String fileName) {
-    String[] data = readData(fileName);
-    String[][] triples = splitTriples(data);
-    expandTriples(triples);
-    processBlankNodesAndCollections();
-    insertLiterals();
-    insertURLs();
-    replaceBlankAndCollectionIDs();
-    removeNewLines();
-    collectPrefixes();
-    replacePrefixes();
-    removePrefixStatements();
+    this(fileName, null);
   }
 
   /**
-   * Outputs the data in CSV format with a header and tabs as the delimiter.
+   * Creates an instance of the turtle parser that records statistics about the parse.
+   * @param fileName name of the file containing the turtle data.
+   * @param stats (ParseStats) receives the statistics, or null if they should not be recorded.
    */
-  public void printDataCSV(String delimeter) {
-    System.out.println("Subject" + delimeter + "Predicate" + delimeter + "Object");
-    int count;
-    for (String[] triple : TRIPLE_STORE) {
-      count = 0;
-      for (String component : triple) {
-        System.out.print(component);
-        if (count < 2) System.out.print(delimeter);
-        count++;
-      }
-      System.out.println();
-    }
+  public TurtleParser(String fileName, ParseStats stats) {
+    this(fileName, stats, false);
   }
 
   /**
-   * Outputs the data in RDF Turtle format.
-   * Blank node and collection IDs are given the base URL as their prefix which can be found after '@prefix :' or '@base' in the turtle data.
-   * In the event that there is no base it will be given an example URL.
+   * Creates an instance of the turtle parser that optionally stores every distinct triple only once.
+   * @param fileName name of the file containing the turtle data.
+   * @param stats (ParseStats) receives the statistics, or null if they should not be recorded.
+   * @param deduplicate (boolean) true to drop triples that are exact duplicates of earlier triples, see {@link TripleDeduplicator}.
    */
-  public void printDataTurtle() {
-    boolean hasBase = false;
-    for (String prefix : prefixes) {
-      if (prefix.equals("base:")) {
-        hasBase = true;
-        break;
-      }
-    }
+  public TurtleParser(String fileName, ParseStats stats, boolean deduplicate) {
+    this(fileName, stats, deduplicate, false);
+  }
 
-    // TODO: make this more readable
-    for (String[] triple : TRIPLE_STORE) {
-      if (triple[0].startsWith("blank_node_") || triple[0].startsWith("collection_") || !triple[0].startsWith("http")) {
-        if (hasBase) System.out.print("<" + prefixURLs.get(prefixes.indexOf("base:")) + triple[0] + "> ");
-        else System.out.print("<" + PREFIX_URL + triple[0] + "> ");
-      } else
-        System.out.print("<" + triple[0] + "> ");
-      if (triple[1].startsWith("element_")) {
-        if (hasBase) System.out.print("<" + prefixURLs.get(prefixes.indexOf("base:")) + triple[1] + "> ");
-        else System.out.print("<" + PREFIX_URL + triple[1] + "> ");
-      } else
-        System.out.print("<" + triple[1] + "> ");
-      if (triple[2].startsWith("blank_node_") || triple[2].startsWith("collection_")) {
-        if (hasBase) System.out.println("<" + prefixURLs.get(prefixes.indexOf("base:")) + triple[2] + "> .");
-        else System.out.println("<" + PREFIX_URL + triple[2] + "> .");
-      } else if (triple[2].startsWith("\"") || !triple[2].startsWith("http")) {
-        if (triple[2].contains("\"^^")) {
-          int literalEnd = triple[2].indexOf("\"^^");
-          System.out.println(triple[2].substring(0, literalEnd+3) + "<" + triple[2].substring(literalEnd+3) + "> .");
-        } else if (triple[2].startsWith("\""))
-          System.out.println(triple[2] + " .");
-        else
-          System.out.println("\"" + triple[2] + "\"" + " .");
-      } else
-        System.out.println("<" + triple[2] + "> .");
-    }
+  /**
+   * Creates an instance of the turtle parser that optionally stores every distinct triple only once and profiles the stored triples.
+   * @param fileName name of the file containing the turtle data.
+   * @param stats (ParseStats) receives the statistics, or null if they should not be recorded.
+   * @param deduplicate (boolean) true to drop triples that are exact duplicates of earlier triples, see {@link TripleDeduplicator}.
+   * @param profile (boolean) true to collect a {@link GraphStatistics} of the stored triples while parsing.
+   */
+  public TurtleParser(String fileName, ParseStats stats, boolean deduplicate, boolean profile) {
+    this(fileName, stats, deduplicate, profile, null);
   }
 
   /**
-   * Returns the triple data.
-   * @return (ArrayList<String[]>) the triple data as an ArrayList containing string arrays of length 3.
+   * Creates an instance of the turtle parser that only stores the triples selected by a filter.
+   * The filter is checked while the statements are built, so the rejected objects are not decoded, see {@link TripleFilter}.
+   * @param fileName name of the file containing the turtle data.
+   * @param stats (ParseStats) receives the statistics, or null if they should not be recorded.
+   * @param deduplicate (boolean) true to drop triples that are exact duplicates of earlier triples, see {@link TripleDeduplicator}.
+   * @param profile (boolean) true to collect a {@link GraphStatistics} of the stored triples while parsing.
+   * @param filter (TripleFilter) selects the triples to store, or null to store all of them.
    */
-  public ArrayList<String[]> getData() {
-    return TRIPLE_STORE;
+  public TurtleParser(String fileName, ParseStats stats, boolean deduplicate, boolean profile, TripleFilter filter) {
+    this(fileName, stats, deduplicate, profile, filter, 1);
   }
 
   /**
-   * Reads the turtle file and splits the data into unprocessed triples.
+   * Creates an instance of the turtle parser that only stores the triples selected by a filter, and parses an N-Triples file
+   * on multiple threads, see {@link NTriplesParser}. A turtle file is parsed on one thread, so that the filter is checked
+   * while its statements are built.
    * @param fileName name of the file containing the turtle data.
-   * @return (String[]) an array of the unprocessed triples.
+   * @param stats (ParseStats) receives the statistics, or null if they should not be recorded.
+   * @param deduplicate (boolean) true to drop triples that are exact duplicates of earlier triples, see {@link TripleDeduplicator}.
+   * @param profile (boolean) true to collect a {@link GraphStatistics} of the stored triples while parsing.
+   * @param filter (TripleFilter) selects the triples to store, or null to store all of them.
+   * @param threads (int) the number of threads to parse an N-Triples file with.
+   * @throws IllegalArgumentException if the number of threads is less than 1.
    */
-  private String[] readData(String fileName) {
+  public TurtleParser(String fileName, ParseStats stats, boolean deduplicate, boolean profile, TripleFilter filter, int threads) {
+    this();
+    if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1.");
+    PARSE_STATS = stats;
+    TRIPLE_BUILDER.setFilter(filter);
+    // the profile sees the triples after the duplicates are dropped, so it describes the stored data.
+    if (profile) GRAPH_STATISTICS = new GraphStatistics(TRIPLE_STORE);
+    TripleSink stored = GRAPH_STATISTICS != null ? GRAPH_STATISTICS : TRIPLE_STORE;
+    TripleDeduplicator deduplicator = deduplicate ? new TripleDeduplicator(stored) : null;
+    TripleSink sink = deduplicator != null ? deduplicator : stored;
+    // the lines of an N-Triples file are not built by the triple builder, so their triples are filtered afterwards.
+    if (!streamNTriples(fileName, threads, filter != null ? filter.filter(sink) : sink)) stream(readData(fileName), sink, fileName);
+    if (deduplicator != null) DUPLICATE_COUNT = deduplicator.getDuplicates();
+    TRIPLE_STORE.trimToSize();
+  }
 
-    // TODO: make this function more neat
+  /**
+   * Creates an instance of the turtle parser that splits the file into chunks and parses them on multiple threads.
+   * The data is identical to that of the single-threaded parser, including the blank node and collection IDs.
+   * @param fileName name of the file containing the turtle data.
+   * @param threads (int) the number of threads to parse with.
+   */
+  public TurtleParser(String fileName, int threads) {
+    this(fileName, threads, null);
+  }
 
-    StringBuilder data_string = new StringBuilder();
-    File file = new File(fileName);
+  /**
+   * Creates an instance of the turtle parser that parses on multiple threads and records statistics about the parse.
+   * @param fileName name of the file containing the turtle data.
+   * @param threads (int) the number of threads to parse with.
+   * @param stats (ParseStats) receives the statistics of all threads added together, or null if they should not be recorded.
+   */
+  public TurtleParser(String fileName, int threads, ParseStats stats) {
+    this();
+    PARSE_STATS = stats;
+    streamParallel(fileName, threads, TRIPLE_STORE);
+    TRIPLE_STORE.trimToSize();
+  }
 
-    try {
-      Scanner reader = new Scanner(file);
-      while (reader.hasNextLine()) data_string.append(reader.nextLine()).append(" ~!NEWLINE!~ ");
-      reader.close();
-    } catch (FileNotFoundException err) {
-      System.out.println("File '" + fileName + "' does not exist.");
-    }
+  TurtleParser() {
+    PREFIX_MAP.declare("rdf", "http://www.w3.org/1999/02/22-rdf-syntax-ns#");
+  }
 
-    data_string = new StringBuilder(data_string.toString().replaceAll("\"{4," + data_string.length() + "}", ""));
-    data_string = new StringBuilder(data_string.toString().replaceAll("\\\\\"", ""));
-    data_string = new StringBuilder(data_string.toString().replaceAll("\\s+", " "));
-    data_string = new StringBuilder(data_string.toString().replaceAll("@base", "@prefix :"));
+  /**
+   * Parses a turtle file without storing the data.
+   * Each triple is passed to the sink as soon as the statement containing it has ended, with its prefixes already expanded.
+   * @param fileName name of the file containing the turtle data.
+   * @param sink (TripleSink) receives the triples in the order they are parsed.
+   */
+  public static void parse(String fileName, TripleSink sink) {
+    TurtleParser parser = new TurtleParser();
+    if (!parser.streamNTriples(fileName, 1, sink)) parser.stream(parser.readData(fileName), sink, fileName);
+  }
 
-    Pattern pattern = Pattern.compile("<(.*?)>");
-    Matcher matcher = pattern.matcher(data_string.toString());
-    while(matcher.find()) {
-      URLs.add(matcher.group(1));
-    }
+  /**
+   * Parses a turtle file without storing the data, and passes on only the triples selected by a filter.
+   * @param fileName name of the file containing the turtle data.
+   * @param filter (TripleFilter) selects the triples, see {@link TripleFilter}, or null to pass on all of them.
+   * @param sink (TripleSink) receives the selected triples in the order they are parsed.
+   */
+  public static void parse(String fileName, TripleFilter filter, TripleSink sink) {
+    TurtleParser parser = new TurtleParser();
+    parser.TRIPLE_BUILDER.setFilter(filter);
+    if (!parser.streamNTriples(fileName, 1, filter != null ? filter.filter(sink) : sink)) parser.stream(parser.readData(fileName), sink, fileName);
+  }
 
-    int url_id = 0;
-    data_string = new StringBuilder(data_string.toString().replaceAll("<(.*?)>", " ~!URL!~ "));
-    while (data_string.toString().contains("~!URL!~"))
-      data_string = new StringBuilder(data_string.toString().replaceFirst("~!URL!~", "~!URL<" + (url_id++) + ">!~"));
+  /**
+   * Parses turtle data from a channel, such as stdin, without storing the data.
+   * @param channel (ReadableByteChannel) the source of the turtle data, which is closed once it has been read.
+   * @param sink (TripleSink) receives the triples in the order they are parsed.
+   */
+  public static void parse(ReadableByteChannel channel, TripleSink sink) {
+    new TurtleParser().stream(TurtleInput.of(channel), sink, channel.toString());
+  }
 
-    pattern = Pattern.compile("\"\"\"(.*?)\"\"\"");
-    matcher = pattern.matcher(data_string.toString());
-    while(matcher.find()) {
-      LITERALS3.add(matcher.group(1));
-    }
-    data_string = new StringBuilder(data_string.toString().replaceAll("\"\"\"(.*?)\"\"\"", "~!LITERAL3!~"));
+  /**
+   * Parses a turtle file on multiple threads without storing the data.
+   * The triples are passed to the sink in the same order and with the same blank node and collection IDs as the single-threaded parser.
+   * @param fileName name of the file containing the turtle data.
+   * @param threads (int) the number of threads to parse with.
+   * @param sink (TripleSink) receives the triples in the order they appear in the file.
+   */
+  public static void parse(String fileName, int threads, TripleSink sink) {
+    new TurtleParser().streamParallel(fileName, threads, sink);
+  }
 
-    pattern = Pattern.compile("\"(.*?)\"");
-    matcher = pattern.matcher(data_string.toString());
-    while(matcher.find()) {
-      LITERALS2.add(matcher.group(1));
-    }
-    data_string = new StringBuilder(data_string.toString().replaceAll("\"(.*?)\"", "~!LITERAL2!~"));
+  /**
+   * Turns every statement of the turtle data into triples and passes them to the sink.
+   * Statistics are recorded if they were requested or if a flight recording of {@link ParseEvent} is running.
+   * @param input (TurtleInput) the turtle data, which is closed once it has been read.
+   * @param sink (TripleSink) receives the processed triples.
+   * @param source (String) a description of the input for the flight recorder.
+   */
+  private void stream(TurtleInput input, TripleSink sink, String source) {
+    ParseEvent event = new ParseEvent();
+    if (PARSE_STATS == null && event.isEnabled()) PARSE_STATS = new ParseStats();
+    event.begin();
+    process(input, sink);
+    sink.finish();
+    if (PARSE_STATS != null) PARSE_STATS.commit(event, source);
+  }
 
-    pattern = Pattern.compile("'(.*?)'");
-    matcher = pattern.matcher(data_string.toString());
-    while(matcher.find()) {
-      LITERALS1.add(matcher.group(1));
+  /**
+   * Parses a turtle file with a {@link ParallelTurtleParser}, collecting its prefixes in this instance.
+   * @param fileName name of the file containing the turtle data.
+   * @param threads (int) the number of threads to parse with.
+   * @param sink (TripleSink) receives the processed triples.
+   */
+  private void streamParallel(String fileName, int threads, TripleSink sink) {
+    if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1.");
+    if (streamNTriples(fileName, threads, sink)) return;
+    ParseEvent event = new ParseEvent();
+    if (PARSE_STATS == null && event.isEnabled()) PARSE_STATS = new ParseStats();
+    event.begin();
+    try {
+      ParallelTurtleParser.parse(Paths.get(fileName), threads, this, sink);
+      if (PARSE_STATS != null) PARSE_STATS.commit(event, fileName);
+    } catch (NoSuchFileException err) {
+      System.out.println("File '" + fileName + "' does not exist.");
+      sink.finish();
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
     }
-    data_string = new StringBuilder(data_string.toString().replaceAll("'(.*?)'", "~!LITERAL1!~"));
-
-    int literal_id_3 = 0;
-    while (data_string.toString().contains("~!LITERAL3!~"))
-      data_string = new StringBuilder(data_string.toString().replaceFirst("~!LITERAL3!~", "~!LITERAL3<" + (literal_id_3++) + ">!~"));
-
-    int literal_id_2 = 0;
-    while (data_string.toString().contains("~!LITERAL2!~"))
-      data_string = new StringBuilder(data_string.toString().replaceFirst("~!LITERAL2!~", "~!LITERAL2<" + (literal_id_2++) + ">!~"));
-
-    int literal_id_1 = 0;
-    while (data_string.toString().contains("~!LITERAL1!~"))
-      data_string = new StringBuilder(data_string.toString().replaceFirst("~!LITERAL1!~", "~!LITERAL1<" + (literal_id_1++) + ">!~"));
+  }
 
-    while (data_string.toString().contains("#")) {
-      data_string = new StringBuilder(data_string.toString().replaceFirst("#(.*?)~!NEWLINE!~", ""));
+  /**
+   * Parses a file with the {@link NTriplesParser} if its name marks it as N-Triples.
+   * @param fileName name of the file.
+   * @param threads (int) the number of threads to parse with.
+   * @param sink (TripleSink) receives the processed triples.
+   * @return (boolean) true if the file was parsed, false if it is not an N-Triples file.
+   */
+  private boolean streamNTriples(String fileName, int threads, TripleSink sink) {
+    if (fileName == null || !NTriplesParser.isNTriples(Paths.get(fileName))) return false;
+    ParseEvent event = new ParseEvent();
+    if (PARSE_STATS == null && event.isEnabled()) PARSE_STATS = new ParseStats();
+    event.begin();
+    try {
+      NTriplesParser.parse(Paths.get(fileName), threads, PARSE_STATS, sink);
+      if (PARSE_STATS != null) PARSE_STATS.commit(event, fileName);
+    } catch (NoSuchFileException err) {
+      System.out.println("File '" + fileName + "' does not exist.");
+      sink.finish();
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
     }
-
-    data_string = new StringBuilder(data_string.toString().replaceAll("\\s+", " "));
-    data_string = new StringBuilder(data_string.toString().replaceAll("~!NEWLINE!~", " "));
-    data_string = new StringBuilder(data_string.toString().replaceAll("\\s+", " "));
-
-    data_string = new StringBuilder(harvestCollections(data_string.toString()));
-    data_string = new StringBuilder(data_string.toString().replaceAll("\\s+", " "));
-
-    data_string = new StringBuilder(harvestBlankNodes(data_string.toString()));
-    data_string = new StringBuilder(data_string.toString().replaceAll("\\s+", " "));
-
-    String[] data = data_string.toString().split("\\s[.]\\s", data_string.length()/3);
-
-    for (int i = 0; i < data.length; i++)
-      if (data[i].startsWith(" "))
-        data[i] = data[i].substring(1);
-
-    return data;
+    return true;
   }
 
   /**
-   * Separates the unprocessed triples into their 3 fundamental components.
-   * @param data (String[]) unprocessed triples
-   * @return (String[][]) still unprocessed triples but now in three columns (subject, predicate, object)
+   * Turns every statement of the turtle data into triples without finishing the sink.
+   * Prefixes, blank node IDs and collection IDs carry over between calls on the same instance.
+   * @param input (TurtleInput) the turtle data, which is closed once it has been read.
+   * @param sink (TripleSink) receives the processed triples.
    */
-  private String[][] splitTriples(String[] data) {
+  void process(TurtleInput input, TripleSink sink) {
+    process(input, sink, 1);
+  }
 
-    String[][] triples = new String[data.length-1][3];
-    String[] newTriple = new String[3];
-    
-    for (int i = 0; i < data.length-1; i++) {
-      newTriple = data[i].split("\\s+", 3);
-      triples[i][0] = newTriple[0];
-      triples[i][1] = newTriple[1];
-      triples[i][2] = newTriple[2];
-    }
-    
-    eliminateWhiteSpace(triples);
-    
-    for (String[] triple : triples) {
-      if (triple[1].equals("a")) {
-        triple[1] = "rdf:type";
+  /**
+   * Turns every statement of turtle data that continues earlier data into triples, numbering its lines from a given line.
+   * @param input (TurtleInput) the turtle data, which is closed once it has been read.
+   * @param sink (TripleSink) receives the processed triples.
+   * @param firstLine (int) the line number of the first byte of the data, used in error messages.
+   */
+  void process(TurtleInput input, TripleSink sink, int firstLine) {
+    try (input) {
+      long start = input.offset(0);
+      TurtleLexer lexer = new TurtleLexer(input, firstLine);
+      if (PARSE_STATS != null) PARSE_STATS.start();
+      while (nextStatement(lexer)) {
+        lap(ParseStats.Phase.READ_DATA);
+        List<Triple> triples = TRIPLE_BUILDER.build(STATEMENT_TOKENS, PARSE_STATS);
+        lap(ParseStats.Phase.BUILD_TRIPLES);
+        for (Triple triple : triples) sink.accept(triple);
+        lap(ParseStats.Phase.STORE);
+      }
+      if (PARSE_STATS != null) {
+        lap(ParseStats.Phase.READ_DATA);
+        PARSE_STATS.addBytesRead(lexer.getOffset() - start);
       }
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
     }
-    
-      return triples;
   }
 
   /**
-   * Converts the existing data into simpler triples by looking at the usage of commas and semicolons according to the Turtle syntax.
-   * @param triples (String[][]) unprocessed triples separated into their 3 fundamental components.
+   * Starts recording statistics about the following calls to {@link #process(TurtleInput, TripleSink)}.
+   * @param stats (ParseStats) receives the statistics, or null to stop recording.
    */
-  private void expandTriples(String[][] triples) {
-    for (String[] triple : triples) {
-
-      // super refers to the main unprocessed component of the triple.
-      String super_subject = triple[0];
-      String super_predicate = triple[1];
-      String super_object = triple[2];
-
-      // turtle has a variety of ways to express the same data, wherever I replace a symbol with another symbol it is inorder the simplify the process.
-      if (super_object.contains(";.")) super_object = super_object.replace(";.", " . ");
-      super_object = super_object.replaceAll(";\\s+\\.", " . ");
-
-      if (super_object.contains(";")) {
-
-        String[] predicates_and_objects = super_object.split(";");
-
-        if (predicates_and_objects[0].contains(",")) {
-          String[] objects = predicates_and_objects[0].split(",");
-          for (String object : objects)
-            TRIPLE_STORE.add(new String[]{super_subject, super_predicate, object});
-        } else
-          TRIPLE_STORE.add(new String[]{super_subject, super_predicate, predicates_and_objects[0]});
+  void setParseStats(ParseStats stats) {
+    PARSE_STATS = stats;
+  }
 
-        for (int j = 1; j < predicates_and_objects.length; j++) {
-          String[] predicate_and_object = predicates_and_objects[j].split("\\s");
-          String predicate = predicate_and_object[0];
-          String object = predicate_and_object[1];
+  /**
+   * Returns the statistics of the parse.
+   * @return (ParseStats) the statistics, or null if they were not recorded.
+   */
+  public ParseStats getParseStats() {
+    return PARSE_STATS;
+  }
 
-          if (object.contains(",")) {
-            String[] objects = object.split(",");
-            for (String s : objects)
-              TRIPLE_STORE.add(new String[]{super_subject, predicate, s});
-          } else
-            TRIPLE_STORE.add(new String[]{super_subject, predicate, object});
-        }
+  /**
+   * Returns the number of duplicate triples that were dropped.
+   * @return (long) the number of duplicates, which is 0 if deduplication was not requested.
+   */
+  public long getDuplicateCount() {
+    return DUPLICATE_COUNT;
+  }
 
-      } else if (super_object.contains(",")) {
-        String[] objects = super_object.split(",");
-        for (String object : objects)
-          TRIPLE_STORE.add(new String[]{super_subject, super_predicate, object});
-      } else
-        TRIPLE_STORE.add(new String[]{super_subject, super_predicate, super_object});
-    }
+  /**
+   * Returns the profile of the stored triples.
+   * @return (GraphStatistics) the profile, or null if it was not requested.
+   */
+  public GraphStatistics getGraphStatistics() {
+    return GRAPH_STATISTICS;
+  }
 
-    TRIPLE_STORE.removeIf(triple -> triple[0].equals(""));
-  }
-
-  /**
-   * Iterates through the data and removes the whitespace.
-   * @param triples (String[][]) unprocessed triples separated into subject, predicate, and object
-   */
-  private void eliminateWhiteSpace(String[][] triples) {
-    // regular expressions to capture whitespace (this was my first time using regex, so I'm sure it can be simplified)
-    String[] patterns = {
-        "\\s+\\[\\s+",
-        "\\s+]\\s+",
-        "\\s+\\[",
-        "\\s+]+",
-        "\\[\\s+",
-        "]\\s+",
-        "\\s+;\\s+",
-        "\\s+,\\s+",
-        "\\s+;",
-        "\\s+,",
-        ";\\s+",
-        ",\\s+"
-    };
-    String[] replacements = {
-        "[",
-        "]",
-        "[",
-        "]",
-        "[",
-        "]",
-        ";",
-        ",",
-        ";",
-        ",",
-        ";",
-        ","
-    };
-    for (String[] triple : triples)
-      for (int i = 0; i < patterns.length; i++)
-        triple[2] = triple[2].replaceAll(patterns[i], replacements[i]);
-  }
-
-  /**
-   * Checks if a string contains the prefix identifier.
-   * @param string (String) string to check for prefix identifier.
-   * @return true if the string contains the prefix identifier, false otherwise
-   */
-  private boolean containsPrefix(String string) {
-    for (String prefix : prefixes) {
-      if (string.contains(prefix)){
-        PREFIX = prefix;
-        PREFIX_URL = prefixURLs.get(prefixes.indexOf(prefix));
-        return true;
-      }
-    }
-    return false;
+  private void lap(ParseStats.Phase phase) {
+    if (PARSE_STATS != null) PARSE_STATS.lap(phase);
   }
 
   /**
-   * Replaces the literal IDs in the data with their corresponding literals.
+   * Returns the number of blank node IDs that have been handed out.
+   * @return (int) the next blank node ID.
    */
-  private void insertLiterals() {
-    for (String[] triple : TRIPLE_STORE) {
-      Pattern pattern1 = Pattern.compile("~!LITERAL1<(.*?)>!~");
-      Matcher matcher1 = pattern1.matcher(triple[2]);
-      if (matcher1.find()) {
-        int index = Integer.parseInt(matcher1.group(1));
-        triple[2] = triple[2].replace("~!LITERAL1<" + index +">!~", "\"" + LITERALS1.get(index) + "\"");
-      }
-      Pattern pattern2 = Pattern.compile("~!LITERAL2<(.*?)>!~");
-      Matcher matcher2 = pattern2.matcher(triple[2]);
-      if (matcher2.find()) {
-        int index = Integer.parseInt(matcher2.group(1));
-        triple[2] = triple[2].replace("~!LITERAL2<" + index +">!~", "\"" + LITERALS2.get(index) + "\"");
-      }
-      Pattern pattern3 = Pattern.compile("~!LITERAL3<(.*?)>!~");
-      Matcher matcher3 = pattern3.matcher(triple[2]);
-      if (matcher3.find()) {
-        int index = Integer.parseInt(matcher3.group(1));
-        triple[2] = triple[2].replace("~!LITERAL3<" + index +">!~", "\"" + LITERALS3.get(index) + "\"");
-      }
-    }
+  int getBlankNodeCount() {
+    return TRIPLE_BUILDER.getBlankNodeCount();
   }
 
   /**
-   * Replaces the URL IDs in the data with their corresponding URLs.
+   * Returns the number of collection IDs that have been handed out.
+   * @return (int) the next collection ID.
    */
-  private void insertURLs() {
-    for (String[] triple : TRIPLE_STORE) {
-      Pattern pattern = Pattern.compile("~!URL<(.*?)>!~");
-      Matcher matcher = pattern.matcher(triple[0]);
-      if (matcher.find()) {
-        int index = Integer.parseInt(matcher.group(1));
-        triple[0] = URLs.get(index);
-      }
-      matcher = pattern.matcher(triple[1]);
-      if (matcher.find()) {
-        int index = Integer.parseInt(matcher.group(1));
-        triple[1] = URLs.get(index);
-      }
-      matcher = pattern.matcher(triple[2]);
-      if (matcher.find()) {
-        int index = Integer.parseInt(matcher.group(1));
-        triple[2] = URLs.get(index);
-      }
-    }
+  int getCollectionCount() {
+    return TRIPLE_BUILDER.getCollectionCount();
   }
 
   /**
-   * Removes the new lines in the data.
+   * Outputs the data in CSV format with a header.
+   * @param delimeter (String) the separator between the fields of a row.
    */
-  private void removeNewLines() {
-    for (String[] triple : TRIPLE_STORE) {
-      if (triple[2].contains("~!NEWLINE!~")) {
-        triple[2] = triple[2].replaceAll("~!NEWLINE!~+", "");
-        triple[2] = triple[2].replaceAll("\\s+", " ");
-      }
-    }
+  public void printDataCSV(String delimeter) {
+    printData(new CsvWriter(System.out, delimeter));
   }
 
   /**
-   * Collects all the prefixes and stores them.
+   * Outputs the data in RDF Turtle format.
+   * Blank node and collection IDs are given the base URL as their prefix which can be found after '@prefix :' or '@base' in the turtle data.
+   * In the event that there is no base it will be given an example URL.
    */
-  private void collectPrefixes() {
-    prefixes.add("rdf:");
-    prefixURLs.add("http://www.w3.org/1999/02/22-rdf-syntax-ns#");
-    for (String[] triple : TRIPLE_STORE) {
-      if (triple[0].equals("@prefix")) {
-        if (triple[1].equals(":")) prefixes.add("base:");
-        else prefixes.add(triple[1]);
-        prefixURLs.add(triple[2]);
-      }
-    }
+  public void printDataTurtle() {
+    printData(new NTriplesWriter(System.out, getBaseURL()));
   }
 
   /**
-   * Replaces all the prefixes with their corresponding URLs.
+   * Writes all of the data with a writer and ends its output, without closing the stream it writes to.
+   * @param writer (TripleWriter) the writer, such as a {@link NTriplesWriter}, {@link TurtleWriter} or {@link CsvWriter}.
    */
-  private void replacePrefixes() {
-    for (String[] triple : TRIPLE_STORE) {
-      if (triple[0].startsWith(":"))
-        triple[0] = triple[0].replace(":", prefixURLs.get(prefixes.indexOf("base:")));
-      else if (containsPrefix(triple[0])) triple[0] = triple[0].replace(PREFIX, PREFIX_URL);
-
-      if (triple[1].startsWith(":"))
-        triple[1] = triple[1].replace(":", prefixURLs.get(prefixes.indexOf("base:")));
-      else if (containsPrefix(triple[1])) triple[1] = triple[1].replace(PREFIX, PREFIX_URL);
-
-      if (triple[2].startsWith(":"))
-        triple[2] = triple[2].replace(":", prefixURLs.get(prefixes.indexOf("base:")));
-      else if (containsPrefix(triple[2])) triple[2] = triple[2].replace(PREFIX, PREFIX_URL);
+  public void printData(TripleWriter writer) {
+    try {
+      writer.write(TRIPLE_STORE);
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
     }
+    writer.finish();
   }
 
   /**
-   * Removes all the triples specifying a prefix for a URL.
+   * Saves the parsed data in a binary snapshot file, which can be reloaded much faster than the turtle data can be parsed.
+   * @param fileName name of the snapshot file, which is replaced if it exists.
+   * @see GraphSnapshot#open(java.nio.file.Path)
    */
-  private void removePrefixStatements() {
-    TRIPLE_STORE.removeIf(triple -> triple[0].equals("@prefix"));
+  public void saveSnapshot(String fileName) {
+    try {
+      GraphSnapshot.save(this, Paths.get(fileName));
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
   }
 
   /**
-   * Collects all the content inside the blank nodes and replaces it with an ID.
-   * @param data (String) the turtle data.
-   * @return (String) the turtle data with the blank node content removed.
+   * Returns the URL that is put in front of blank node IDs, collection IDs and relative names in the output.
+   * @return (String) the first base URL declared in the turtle data, or an example URL if there is none.
    */
-  private String harvestBlankNodes(String data) {
-    Stack<Integer> openBrackets = new Stack<>();
-    int openBracketIndex = -1, closedBracketIndex = -1;
-    for (int i = 0; i < data.length(); i++) {
-      if (data.charAt(i) == '[') openBrackets.push(i);
-      if (data.charAt(i) == ']') {
-        openBracketIndex = openBrackets.pop();
-        closedBracketIndex = i;
-        String subString = data.substring(openBracketIndex + 1, closedBracketIndex);
-        BLANK_NODES.add(subString);
-        data = data.replace("[" + subString + "]", " ~!BLANK<" + (BLANK_ID++) + ">!~ " + whiteSpaceForBlankNode(subString, BLANK_ID));
-      }
-    }
-    return data;
+  public String getBaseURL() {
+    return BASE_URL != null ? BASE_URL : EXAMPLE_BASE_URL;
   }
 
   /**
-   * Generates the amount of whitespace needed to replace a blank node.
-   * @param subString (String) the content of the blank node.
-   * @param blank_id (int) the ID of the blank node.
-   * @return (String) whitespace.
+   * Returns the triple data.
+   * Every triple is decoded into a new list, which can be changed without affecting the parser. To read the triples without
+   * decoding them all at once, use the read-only view of {@code getTripleStore().asList()}.
+   * @return (ArrayList<String[]>) the triple data as an ArrayList containing string arrays of length 3.
    */
-  public String whiteSpaceForBlankNode(String subString, int blank_id) {
-    int spaceRemoved = subString.length() + 2;
-    int spaceFilled = 13;
-    return getString(blank_id, spaceRemoved, spaceFilled);
+  public ArrayList<String[]> getData() {
+    return new ArrayList<>(TRIPLE_STORE.asList());
   }
 
   /**
-   * Collects all the content inside the collections and replaces it with an ID.
-   * @param data (String) the turtle data.
-   * @return (String) the turtle data with the collection content removed.
+   * Returns the dictionary-encoded triple data.
+   * @return (TripleStore) the triple data with every term replaced by its ID.
    */
-  private String harvestCollections(String data) {
-    Stack<Integer> openBrackets = new Stack<>();
-    int openBracketIndex = -1, closedBracketIndex = -1;
-    String subString = "";
-    for (int i = 0; i < data.length(); i++) {
-      if (data.charAt(i) == '(') openBrackets.push(i);
-      if (data.charAt(i) == ')') {
-        openBracketIndex = openBrackets.pop();
-        closedBracketIndex = i;
-        subString = data.substring(openBracketIndex+1, closedBracketIndex);
-        COLLECTIONS.add(subString);
-        data = data.replace("(" + subString + ")", " ~!COLLECTION<" + (COLLECTION_ID++) + ">!~ " + whiteSpaceForCollection(subString, COLLECTION_ID));
-      }
-    }
-    return data;
+  public TripleStore getTripleStore() {
+    return TRIPLE_STORE;
   }
 
   /**
-   * Generates the amount of whitespace needed to replace a collection.
-   * @param subString (String) the content of the collection.
-   * @param collection_id (int) the ID of the collection.
-   * @return (String) whitespace.
+   * Builds an index of the data for looking up the triples that match a pattern.
+   * @return (TripleIndex) an immutable index of the triples.
    */
-  public String whiteSpaceForCollection(String subString, int collection_id) {
-    int spaceRemoved = subString.length() + 2;
-    int spaceFilled = 18;
-    return getString(collection_id, spaceRemoved, spaceFilled);
+  public TripleIndex buildIndex() {
+    return new TripleIndex(TRIPLE_STORE);
   }
 
-  private String getString(int collection_id, int spaceRemoved, int spaceFilled) {
-    String id = "" + collection_id;
-    spaceFilled += id.length();
-    int spaceNeeded = spaceRemoved - spaceFilled;
-    return " ".repeat(Math.max(0, spaceNeeded));
+  /**
+   * Returns the prefixes declared in the turtle data.
+   * @return (PrefixMap) the prefixes, including the base which has an empty label.
+   */
+  public PrefixMap getPrefixMap() {
+    return PREFIX_MAP;
   }
 
   /**
-   * Replaces the existing blank node and collection IDs with a more readable version.
-   * The previous IDs were purposefully strange inorder to prevent any conflicts with the other data.
+   * Makes the parsed data read-only, so that the parser can be shared by threads that only read from it.
+   * The triple store, its dictionary and the prefix map then throw an UnsupportedOperationException when they are changed.
    */
-  private void replaceBlankAndCollectionIDs() {
-    Pattern pattern = Pattern.compile("<(.*?)>");
-    Matcher matcher;
-    int id = 0;
-    for (String[] triple : TRIPLE_STORE) {
-      if (triple[0].contains("~!BLANK")) {
-        matcher = pattern.matcher(triple[2]);
-        if (matcher.find()) id = Integer.parseInt(matcher.group(1));
-        triple[0] = "blank_node_(id=" + id + ")";
-      } else if (triple[0].contains("~!COLLECTION")) {
-        matcher = pattern.matcher(triple[2]);
-        if (matcher.find()) id = Integer.parseInt(matcher.group(1));
-        triple[0] = "collection_(id=" + id + ")";
-      }
-      if (triple[2].contains("~!BLANK")) {
-        matcher = pattern.matcher(triple[2]);
-        if (matcher.find()) id = Integer.parseInt(matcher.group(1));
-        triple[2] = "blank_node_(id=" + id + ")";
-      } else if (triple[2].contains("~!COLLECTION")) {
-        matcher = pattern.matcher(triple[2]);
-        if (matcher.find()) id = Integer.parseInt(matcher.group(1));
-        triple[2] = "collection_(id=" + id + ")";
-      }
-    }
+  void makeReadOnly() {
+    TRIPLE_STORE.makeReadOnly();
+    PREFIX_MAP.makeReadOnly();
   }
 
   /**
-   * Processes the content of the blank nodes and collections to add the triples to the triple storage.
+   * Opens the turtle file.
+   * @param fileName name of the file containing the turtle data.
+   * @return (TurtleInput) the content of the file, which is empty if the file could not be opened.
    */
-  private void processBlankNodesAndCollections() {
-    for (int i = 0; i < COLLECTIONS.size(); i++) {
-      String collection = COLLECTIONS.get(i);
-      collection = harvestBlankNodes(collection);
-      processCollection(collection, i);
-    }
-    for (int i = 0; i < BLANK_NODES.size(); i++) {
-      processBlankNode(BLANK_NODES.get(i), i);
+  private TurtleInput readData(String fileName) {
+    try {
+      return TurtleInput.open(Paths.get(fileName));
+    } catch (IOException err) {
+      System.out.println("File '" + fileName + "' does not exist.");
+      return TurtleInput.of(ByteBuffer.allocate(0));
     }
   }
 
   /**
-   * Processes a blank node to recover the triples inside of it.
-   * @param blank (String) content of the blank node.
-   * @param blank_id (int) ID of the blank node.
+   * Reads the tokens of the next statement, which ends with a '.' outside of any blank node or collection.
+   * Directives are applied to the prefixes as soon as they are read and do not produce a statement.
+   * @param lexer (TurtleLexer) the source of the tokens.
+   * @return (boolean) true if the tokens of a statement, without its final '.', were read into STATEMENT_TOKENS,
+   * or false if there are no more complete statements.
+   * @throws IllegalArgumentException if a '.' or the end of the data is reached inside a blank node or collection.
    */
-  private void processBlankNode(String blank, int blank_id) {
-    blank = blank.replaceAll("\\s+", " ");
-    if (blank.endsWith(" ")) blank = blank.substring(0, blank.length()-1);
-    if (blank.endsWith(";") || blank.endsWith(".")) blank = blank.substring(0, blank.length()-1);
-    if (blank.endsWith(" ")) blank = blank.substring(0, blank.length()-1);
-
-    String[] entries = blank.split(";");
-    for (String entry : entries) {
-      if (entry.startsWith(" ")) entry = entry.substring(1);
-      if (entry.endsWith(" ")) entry = entry.substring(0, entry.length() - 1);
-      String[] predicate_and_object = entry.split("\\s");
-      if (predicate_and_object.length == 2)
-        TRIPLE_STORE.add(new String[]{"blank_node_(id=" + blank_id + ")", predicate_and_object[0], predicate_and_object[1]});
+  private boolean nextStatement(TurtleLexer lexer) {
+    STATEMENT_TOKENS.clear();
+    OPEN_TOKENS.clear();
+    for (Token token = lexer.next(); token.type() != Token.Type.EOF; token = lexer.next()) {
+      if (STATEMENT_TOKENS.isEmpty() && (token.type() == Token.Type.PREFIX || token.type() == Token.Type.BASE)) {
+        readDirective(lexer, token);
+        continue;
+      }
+      switch (token.type()) {
+        case OPEN_BRACKET:
+        case OPEN_PAREN:
+          OPEN_TOKENS.push(token);
+          break;
+        case CLOSE_BRACKET:
+        case CLOSE_PAREN:
+          OPEN_TOKENS.poll();
+          break;
+        case DOT:
+          if (OPEN_TOKENS.isEmpty()) return true;
+          throw unclosed(OPEN_TOKENS.peek(), "the '.' on line " + token.line());
+        default:
+      }
+      STATEMENT_TOKENS.add(token);
     }
+    if (!OPEN_TOKENS.isEmpty()) throw unclosed(OPEN_TOKENS.peek(), "the end of the data");
+    // a trailing statement without a '.' is incomplete and therefore ignored.
+    return false;
+  }
+
+  private static IllegalArgumentException unclosed(Token open, String reached) {
+    String bracket = open.type() == Token.Type.OPEN_BRACKET ? "'['" : "'('";
+    return new IllegalArgumentException("Unclosed " + bracket + " on line " + open.line() + " before " + reached + ".");
   }
 
   /**
-   * Processes a collection to recover the triples inside of it.
-   * @param collection (String) content of the collection.
-   * @param collection_id (int) ID of the collection.
+   * Reads the rest of a @prefix or @base directive and declares the prefix.
+   * A @base is treated as a declaration of the empty prefix ':'.
+   * @param lexer (TurtleLexer) the source of the tokens.
+   * @param directive (Token) the @prefix or @base token.
    */
-  private void processCollection(String collection, int collection_id) {
-    collection = collection.replaceAll("\\s+", " ");
-    if (collection.startsWith(" ")) collection = collection.substring(1);
-    String[] items = collection.split(" ");
-    for (int i = 0; i < items.length; i++)
-      TRIPLE_STORE.add(new String[]{"collection_(id=" + collection_id + ")", "element_(#" + (i+1) + ")", items[i]});
+  private void readDirective(TurtleLexer lexer, Token directive) {
+    String label = "";
+    if (directive.type() == Token.Type.PREFIX) {
+      Token name = lexer.next();
+      if (name.type() != Token.Type.PREFIXED_NAME || !name.text().endsWith(":"))
+        throw new IllegalArgumentException("Expected a prefix label on line " + name.line() + ".");
+      label = name.text().substring(0, name.text().length() - 1);
+    }
+    Token url = lexer.next();
+    if (url.type() != Token.Type.IRIREF) throw new IllegalArgumentException("Expected a URL on line " + url.line() + ".");
+    Token end = lexer.next();
+    if (end.type() != Token.Type.DOT) throw new IllegalArgumentException("Expected '.' on line " + end.line() + ".");
+
+    PREFIX_MAP.declare(label, url.text());
+    if (PARSE_STATS != null) PARSE_STATS.countDirective();
+    if (label.isEmpty() && BASE_URL == null) BASE_URL = url.text();
   }
+
 }
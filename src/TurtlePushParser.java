@@ -0,0 +1,151 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Parses turtle data that arrives in pieces, such as the chunks of an HTTP upload or the messages of a queue.
+ * The data is passed in with {@link #feed(ByteBuffer)} in pieces of any size and split anywhere, including inside IRIs,
+ * literals, comments and nested blank nodes or collections. The triples of a statement are passed to the sink as soon as
+ * the piece containing the end of the statement has been fed, and {@link #finish()} ends the data. Line numbers in error
+ * messages count from the start of the data, not from the start of a piece.
+ *
+ * A '.' can only be known to end a statement once the byte after it has been seen, since it may also continue a name or
+ * number, as in 'ex:a.b' or '.5'. A statement whose '.' is the very last byte of a piece is therefore passed on when the
+ * next piece is fed, or by {@link #finish()}. A sender that wants every statement of a piece passed on at once should end
+ * the piece with whitespace, such as a line break, after the final '.'.
+ *
+ * Only the bytes of the statement that is still incomplete are kept between calls: a {@link StatementSplitter} finds the
+ * ends of the statements in each new piece, and the complete statements are parsed with the same parser state, so
+ * prefixes, blank node IDs and collection IDs carry over between pieces.
+ */
+public class TurtlePushParser {
+
+  private final TurtleParser parser = new TurtleParser();
+  private final StatementSplitter splitter = new StatementSplitter();
+  private final TripleSink sink;
+  // the largest incomplete statement that is buffered between pieces.
+  private final int maxStatementSize;
+
+  // the data that has not been parsed yet, between position 0 and the limit.
+  private ByteBuffer pending = ByteBuffer.allocate(TurtleInput.BUFFER_SIZE).limit(0);
+  // the offset in the data of the first byte of pending.
+  private long pendingOffset = 0;
+  // the line number of the first byte of pending.
+  private int pendingLine = 1;
+  private boolean finished = false;
+
+  /**
+   * Creates a push parser.
+   * @param sink (TripleSink) receives the triples as soon as their statements are complete.
+   */
+  public TurtlePushParser(TripleSink sink) {
+    this(sink, null);
+  }
+
+  /**
+   * Creates a push parser that records statistics about the parse.
+   * @param sink (TripleSink) receives the triples as soon as their statements are complete.
+   * @param stats (ParseStats) receives the statistics, or null if they should not be recorded.
+   */
+  public TurtlePushParser(TripleSink sink, ParseStats stats) {
+    this(sink, stats, Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Creates a push parser that limits the memory taken up by a single statement, for data from an untrusted source.
+   * @param sink (TripleSink) receives the triples as soon as their statements are complete.
+   * @param stats (ParseStats) receives the statistics, or null if they should not be recorded.
+   * @param maxStatementSize (int) the largest number of bytes of an incomplete statement that is buffered between pieces.
+   */
+  public TurtlePushParser(TripleSink sink, ParseStats stats, int maxStatementSize) {
+    this.sink = sink;
+    this.maxStatementSize = maxStatementSize;
+    parser.setParseStats(stats);
+  }
+
+  /**
+   * Parses the next piece of the data and passes the triples of every statement that it completes to the sink.
+   * A statement that ends with the last byte of the piece is held back until the next piece, see the class description.
+   * @param chunk (ByteBuffer) the next bytes of the data, from its position to its limit. The position is moved to the limit.
+   * @throws IllegalStateException if {@link #finish()} has already been called.
+   * @throws IllegalArgumentException if the statement that is still incomplete is longer than the limit of the parser.
+   */
+  public void feed(ByteBuffer chunk) {
+    if (finished) throw new IllegalStateException("The parser has already finished.");
+    if (chunk.remaining() > pending.capacity() - pending.limit()) grow(chunk.remaining());
+
+    int scanFrom = pending.limit();
+    pending.limit(scanFrom + chunk.remaining());
+    pending.put(scanFrom, chunk, chunk.position(), chunk.remaining());
+    chunk.position(chunk.limit());
+
+    ByteBuffer scan = pending.duplicate().position(scanFrom);
+    long statementEnd = -1;
+    for (long end = splitter.scan(scan); end >= 0; end = splitter.scan(scan)) statementEnd = end;
+    parsePending(statementEnd);
+    if (pending.limit() > maxStatementSize)
+      throw new IllegalArgumentException("A statement is longer than " + maxStatementSize + " bytes.");
+  }
+
+  /**
+   * Ends the data, parses the last statement and finishes the sink.
+   * A trailing statement without a final '.' is incomplete and is ignored, as it is when a file is parsed.
+   * @throws IllegalArgumentException if the data ends inside a blank node or collection.
+   */
+  public void finish() {
+    if (finished) return;
+    finished = true;
+    parsePending(pendingOffset + pending.limit());
+    sink.finish();
+  }
+
+  /**
+   * Returns the prefixes declared in the data so far.
+   * @return (PrefixMap) the prefixes, including the base which has an empty label.
+   */
+  public PrefixMap getPrefixMap() {
+    return parser.getPrefixMap();
+  }
+
+  /**
+   * Returns the URL that is put in front of blank node IDs, collection IDs and relative names in the output.
+   * @return (String) the first base URL declared in the data so far, or an example URL if there is none.
+   */
+  public String getBaseURL() {
+    return parser.getBaseURL();
+  }
+
+  /**
+   * Returns the statistics of the parse.
+   * @return (ParseStats) the statistics, or null if they were not recorded.
+   */
+  public ParseStats getParseStats() {
+    return parser.getParseStats();
+  }
+
+  /**
+   * Parses the pending data up to an offset and removes it from the pending data.
+   * @param end (long) the offset in the data up to which the pending data is parsed.
+   */
+  private void parsePending(long end) {
+    int length = (int) (end - pendingOffset);
+    if (length <= 0) return;
+    parser.process(TurtleInput.of(pending.duplicate().position(0).limit(length)), sink, pendingLine);
+    for (int i = 0; i < length; i++)
+      if (pending.get(i) == '\n') pendingLine++;
+    pending.position(length);
+    pending.compact();
+    pending.flip();
+    pendingOffset = end;
+  }
+
+  /**
+   * Makes room for more data than fits in the pending buffer, which happens when a statement is larger than the buffer.
+   * @param needed (int) the number of bytes to make room for.
+   */
+  private void grow(int needed) {
+    long capacity = Math.max((long) pending.limit() + needed, 2L * pending.capacity());
+    if (capacity > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("A statement is too large to be buffered.");
+    ByteBuffer larger = ByteBuffer.allocate((int) capacity);
+    larger.put(pending.duplicate().position(0)).flip();
+    pending = larger;
+  }
+}
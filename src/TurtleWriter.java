@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes triples in Turtle format.
+ * The declared prefixes are written first and every IRI that can be written as a prefixed name is compacted with them.
+ * Consecutive triples that share a subject are written as one statement, separated by ';', and consecutive triples
+ * that also share a predicate are separated by ','.
+ */
+public class TurtleWriter extends NTriplesWriter {
+
+  private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+
+  private static final byte[] NEXT_PREDICATE = " ;\n    ".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NEXT_OBJECT = " ,\n        ".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] STATEMENT_END = " .\n".getBytes(StandardCharsets.UTF_8);
+
+  private final PrefixMap prefixes;
+
+  private String lastSubject = null;
+  private String lastPredicate = null;
+
+  /**
+   * Creates a Turtle writer.
+   * @param out (OutputStream) the destination of the triples.
+   * @param prefixes (PrefixMap) the prefixes used to compact IRIs.
+   * @param base (String) the URL that is put in front of blank node IDs, collection IDs and relative names.
+   */
+  public TurtleWriter(OutputStream out, PrefixMap prefixes, String base) {
+    super(out, base);
+    this.prefixes = prefixes;
+  }
+
+  @Override
+  protected void writeHeader() throws IOException {
+    for (Map.Entry<String, String> prefix : prefixes.asMap().entrySet()) {
+      write("@prefix ");
+      write(prefix.getKey());
+      write(": <");
+      write(prefix.getValue());
+      write("> .\n");
+    }
+    if (!prefixes.asMap().isEmpty()) write('\n');
+  }
+
+  @Override
+  protected void writeTriple(String subject, String predicate, String object) throws IOException {
+    if (subject.equals(lastSubject)) {
+      if (predicate.equals(lastPredicate)) {
+        write(NEXT_OBJECT);
+      } else {
+        write(NEXT_PREDICATE);
+        writePredicate(predicate);
+        write(' ');
+      }
+    } else {
+      if (lastSubject != null) write(STATEMENT_END);
+      writeSubject(subject);
+      write(' ');
+      writePredicate(predicate);
+      write(' ');
+    }
+    writeObject(object);
+    lastSubject = subject;
+    lastPredicate = predicate;
+  }
+
+  @Override
+  protected void writeFooter() throws IOException {
+    if (lastSubject != null) write(STATEMENT_END);
+  }
+
+  @Override
+  protected void writePredicate(String predicate) throws IOException {
+    if (predicate.equals(RDF_TYPE)) write('a');
+    else super.writePredicate(predicate);
+  }
+
+  @Override
+  protected void writeDatatype(String literal, int start) throws IOException {
+    writeIRI(null, literal.substring(start));
+  }
+
+  /**
+   * Writes an IRI as a prefixed name if one of the prefixes can be used, or between angle brackets otherwise.
+   * @param prefix (String) a URL to put in front of the name, or null if the name is already a full IRI.
+   * @param name (String) the IRI or the name relative to the prefix.
+   * @throws IOException if the output cannot be written.
+   */
+  @Override
+  protected void writeIRI(String prefix, String name) throws IOException {
+    String iri = prefix != null ? prefix.concat(name) : name;
+    String compacted = prefixes.compact(iri);
+    if (compacted != null) write(compacted);
+    else super.writeIRI(null, iri);
+  }
+}